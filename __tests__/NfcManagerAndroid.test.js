@@ -1,14 +1,20 @@
 jest.mock('../src/NativeNfcManager');
 
 import {Platform} from 'react-native';
-import {NativeNfcManager} from '../src/NativeNfcManager';
+import {
+  NativeNfcManager,
+  NfcManagerEmitter,
+  callNative,
+} from '../src/NativeNfcManager';
 import * as NfcError from '../src/NfcError';
 
 describe('NfcManager (android)', () => {
   Platform.setOS('android');
   const NfcManagerModule = require('../src/index.js');
   const NfcManager = NfcManagerModule.default;
-  const {NfcTech} = NfcManagerModule;
+  const {NfcTech, NfcEvents, ScanLoopScript} = NfcManagerModule;
+  const lastNativeCall = () =>
+    callNative.mock.calls[callNative.mock.calls.length - 1];
 
   test('constructor', () => {
     expect(Platform.OS).toBe('android');
@@ -32,6 +38,16 @@ describe('NfcManager (android)', () => {
       5,
       Array.from({length: 16}).map((_, i) => i),
     );
+
+    const blocks = {4: Array.from({length: 16}).map((_, i) => i)};
+    await NfcManager.mifareClassicHandlerAndroid.mifareClassicWriteBlocks(
+      blocks,
+      {verify: true},
+    );
+    expect(lastNativeCall()).toEqual([
+      'mifareClassicWriteBlocks',
+      [blocks, {verify: true}],
+    ]);
   });
 
   test('mifareUltralightHandler', async () => {
@@ -52,6 +68,255 @@ describe('NfcManager (android)', () => {
       5,
       Array.from({length: 4}).map((_, i) => i),
     );
+
+    await expect(
+      NfcManager.mifareUltralightHandlerAndroid.mifareUltralightReadRange(8, 4),
+    ).rejects.toThrow();
+
+    await NfcManager.mifareUltralightHandlerAndroid.mifareUltralightReadRange(
+      0,
+      230,
+    );
+    expect(lastNativeCall()).toEqual(['mifareUltralightReadRange', [0, 230]]);
+
+    await expect(
+      NfcManager.mifareUltralightHandlerAndroid.mifareUltralightWritePages(4, [
+        1, 2, 3,
+      ]),
+    ).rejects.toThrow();
+
+    await NfcManager.mifareUltralightHandlerAndroid.mifareUltralightWritePages(
+      4,
+      Array.from({length: 8}).map((_, i) => i),
+      {verify: true},
+    );
+    expect(lastNativeCall()[0]).toEqual('mifareUltralightWritePages');
+    expect(lastNativeCall()[1][2]).toEqual({verify: true});
+  });
+
+  test('nfcVHandler', async () => {
+    await expect(NfcManager.nfcVHandler.nfcVReadBlocks(0, 0)).rejects.toThrow();
+
+    await NfcManager.nfcVHandler.nfcVReadBlocks(0, 64);
+    expect(lastNativeCall()).toEqual(['nfcVReadBlocks', [0, 64]]);
+
+    await NfcManager.nfcVHandler.nfcVWriteBlocks(4, [1, 2, 3, 4]);
+    expect(lastNativeCall()).toEqual(['nfcVWriteBlocks', [4, [1, 2, 3, 4]]]);
+  });
+
+  test('isoDepHandler', async () => {
+    await NfcManager.isoDepHandler.isoDepSelect([0xe1, 0x04]);
+    expect(lastNativeCall()).toEqual(['isoDepSelect', [[0xe1, 0x04]]]);
+
+    await expect(
+      NfcManager.isoDepHandler.isoDepReadBinary(null, 0, -1),
+    ).rejects.toThrow();
+
+    await NfcManager.isoDepHandler.isoDepReadBinary([0xe1, 0x04]);
+    expect(lastNativeCall()).toEqual([
+      'isoDepReadBinary',
+      [[0xe1, 0x04], 0, 0],
+    ]);
+
+    await NfcManager.isoDepHandler.isoDepUpdateBinary(null, 2, [1, 2]);
+    expect(lastNativeCall()).toEqual(['isoDepUpdateBinary', [null, 2, [1, 2]]]);
+  });
+
+  test('API: transceiveBatch', async () => {
+    expect(() => NfcManager.transceiveBatch([0x00, 0xa4])).toThrow();
+
+    await NfcManager.transceiveBatch([[0x00, 0xa4, 0x04, 0x00]], {
+      expectedSw: [0x9000],
+    });
+    expect(lastNativeCall()[0]).toEqual('transceiveBatch');
+    expect(lastNativeCall()[1][1]).toEqual({expectedSw: [0x9000], followGetResponse: false});
+
+    // a failed frame rejects with the responses received before it
+    const details = {
+      failedIndex: 1,
+      responses: [[0x90, 0x00]],
+      error: 'TAG_LOST',
+    };
+    NativeNfcManager.setNextError(
+      {error: 'transceive fail', details},
+      'transceiveBatch',
+    );
+    try {
+      await NfcManager.transceiveBatch([[0x00], [0x01]]);
+      expect(true).toBe(false);
+    } catch (ex) {
+      expect(ex instanceof NfcError.NfcErrorBase).toBe(true);
+      expect(ex.message).toEqual('transceive fail');
+      expect(ex.details).toEqual(details);
+    }
+  });
+
+  test('API: setByteEncoding', async () => {
+    const {ByteEncoding} = NfcManagerModule;
+    await NfcManager.setByteEncoding(ByteEncoding.Base64);
+    expect(lastNativeCall()[0]).toEqual('setByteEncoding');
+    expect(lastNativeCall()[1]).toEqual(['base64']);
+
+    // base64 input is accepted and validated natively
+    await NfcManager.mifareClassicHandlerAndroid.mifareClassicWriteBlock(
+      5,
+      'AAECAwQFBgcICQoLDA0ODw==',
+    );
+    expect(lastNativeCall()[0]).toEqual('mifareClassicWriteBlock');
+  });
+
+  test('API: writeNdefRecordsAndroid', async () => {
+    const records = [{kind: 'uri', uri: 'https://reactnative.dev'}];
+    await NfcManager.ndefHandler.writeNdefRecordsAndroid(records);
+    expect(lastNativeCall()[0]).toEqual('writeNdefRecords');
+    expect(lastNativeCall()[1]).toEqual([
+      records,
+      {reconnectAfterWrite: false},
+    ]);
+
+    await NfcManager.ndefHandler.writeNdefMessage([0xd0, 0x00, 0x00], {
+      minimalWrite: true,
+    });
+    expect(lastNativeCall()[0]).toEqual('writeNdefMessage');
+    expect(lastNativeCall()[1][1]).toEqual({
+      reconnectAfterWrite: false,
+      minimalWrite: true,
+    });
+  });
+
+  test('API: ndef templates', async () => {
+    const placeholders = [{name: 'serial', offset: 4, length: 2}];
+    await NfcManager.ndefHandler.registerNdefTemplateAndroid(
+      [0xd1, 0x01, 0x03, 0x55, 0x00, 0x00, 0x00],
+      placeholders,
+    );
+    expect(lastNativeCall()[0]).toEqual('registerNdefTemplate');
+    expect(lastNativeCall()[1][1]).toEqual(placeholders);
+
+    await NfcManager.ndefHandler.writeNdefTemplateAndroid(1, {
+      serial: [0x01, 0x02],
+    });
+    expect(lastNativeCall()).toEqual([
+      'writeNdefTemplate',
+      [1, {serial: [0x01, 0x02]}, {reconnectAfterWrite: false}],
+    ]);
+
+    await NfcManager.ndefHandler.unregisterNdefTemplateAndroid(1);
+    expect(lastNativeCall()).toEqual(['unregisterNdefTemplate', [1]]);
+  });
+
+  test('API: getMetrics / resetMetrics', async () => {
+    await NfcManager.getMetrics();
+    expect(lastNativeCall()[0]).toEqual('getMetrics');
+
+    await NfcManager.resetMetrics();
+    expect(lastNativeCall()[0]).toEqual('resetMetrics');
+  });
+
+  test('API: frame trace', async () => {
+    await NfcManager.startFrameTrace();
+    expect(lastNativeCall()).toEqual(['startFrameTrace', [{}]]);
+
+    await NfcManager.stopFrameTrace();
+    expect(lastNativeCall()[0]).toEqual('stopFrameTrace');
+
+    await NfcManager.flushFrameTrace();
+    expect(lastNativeCall()).toEqual(['flushFrameTrace', [null]]);
+  });
+
+  test('API: tag event batching', async () => {
+    await NfcManager.configureTagEventBatching({enabled: true});
+    expect(lastNativeCall()).toEqual([
+      'configureTagEventBatching',
+      [{enabled: true}],
+    ]);
+
+    const onBatch = (evt) =>
+      NfcManagerEmitter._testTriggerCallback(NfcEvents.DiscoverTagBatch, evt);
+    const batch = {tags: [{id: '01'}, {id: '02'}], dropped: 0};
+
+    // fan out to the DiscoverTag listener when nobody listens to the batches
+    const tags = [];
+    NfcManager.setEventListener(NfcEvents.DiscoverTag, (tag) =>
+      tags.push(tag),
+    );
+    onBatch(batch);
+    expect(tags).toEqual(batch.tags);
+
+    let received = null;
+    NfcManager.setEventListener(NfcEvents.DiscoverTagBatch, (evt) => {
+      received = evt;
+    });
+    onBatch(batch);
+    expect(received).toBe(batch);
+    expect(tags.length).toBe(2);
+
+    NfcManager.setEventListener(NfcEvents.DiscoverTag, null);
+    NfcManager.setEventListener(NfcEvents.DiscoverTagBatch, null);
+  });
+
+  test('API: ndef cache', async () => {
+    await NfcManager.setNdefCachePolicy('cacheFirst');
+    expect(lastNativeCall()).toEqual(['setNdefCachePolicy', ['cacheFirst']]);
+
+    await NfcManager.getNdefCacheStats();
+    expect(lastNativeCall()[0]).toEqual('getNdefCacheStats');
+
+    await NfcManager.clearNdefCache();
+    expect(lastNativeCall()[0]).toEqual('clearNdefCache');
+  });
+
+  test('API: background tag queue', async () => {
+    await NfcManager.drainBackgroundTags();
+    expect(lastNativeCall()).toEqual(['drainBackgroundTags', [32]]);
+
+    await NfcManager.configureBackgroundTagQueue({maxSize: 8});
+    expect(lastNativeCall()).toEqual([
+      'configureBackgroundTagQueue',
+      [{maxSize: 8}],
+    ]);
+  });
+
+  test('API: registerTagEvent', async () => {
+    await NfcManager.registerTagEvent({isReaderModeEnabled: true});
+    expect(lastNativeCall()[0]).toEqual('registerTagEvent');
+    // the uid debounce default only applies to android
+    expect(lastNativeCall()[1][0].uidDebounceMs).toBe(0);
+    expect(lastNativeCall()[1][0].readerModeDelay).toBe(250);
+
+    await NfcManager.registerTagEvent({uidDebounceMs: 500});
+    expect(lastNativeCall()[1][0].uidDebounceMs).toBe(500);
+  });
+
+  test('API: startScanLoop', async () => {
+    await NfcManager.startScanLoop();
+    expect(lastNativeCall()[0]).toEqual('startScanLoop');
+    expect(lastNativeCall()[1][0].script).toEqual({type: 'ndef'});
+
+    // reader mode is required by the native scan loop
+    const registerCall = callNative.mock.calls.find(
+      (call) => call[0] === 'registerTagEvent',
+    );
+    expect(registerCall[1][0].isReaderModeEnabled).toBe(true);
+
+    await NfcManager.stopScanLoop();
+    expect(NfcManager.cleanUpTagRegistration).toBe(false);
+  });
+
+  test('API: encoding scan loop', async () => {
+    const script = {
+      type: ScanLoopScript.Encode,
+      message: [0xd0, 0x00, 0x00],
+      lock: true,
+    };
+    await NfcManager.startScanLoop({script});
+    expect(lastNativeCall()[0]).toEqual('startScanLoop');
+    expect(lastNativeCall()[1][0].script).toEqual(script);
+
+    await NfcManager.getScanLoopStats();
+    expect(lastNativeCall()[0]).toEqual('getScanLoopStats');
+
+    await NfcManager.stopScanLoop();
   });
 
   test('API: setAlertMessage', async () => {
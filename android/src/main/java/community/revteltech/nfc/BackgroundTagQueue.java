@@ -0,0 +1,289 @@
+package community.revteltech.nfc;
+
+import android.util.Log;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+
+/**
+ * Bounded queue of the tags discovered while the app is in the background.
+ * Each event is appended as one JSON line to a small file, so the queue survives process death,
+ * the file is rewritten from the queue when events are drained or it grew well past the queue.
+ * The size limit and overflow policy are persisted next to it, a relaunched process trims the
+ * stored events with the configuration they were queued under.
+ */
+class BackgroundTagQueue {
+    private static final String LOG_TAG = "NfcManager-bgQueue";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final int DEFAULT_MAX_SIZE = 32;
+    static final String OVERFLOW_DROP_OLDEST = "dropOldest";
+    static final String OVERFLOW_DROP_NEWEST = "dropNewest";
+
+    private final File file;
+    private final File configFile;
+    private final ArrayDeque<String> events = new ArrayDeque<>();
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private String overflow = OVERFLOW_DROP_OLDEST;
+    private long droppedCount = 0;
+    private int fileLines = 0;
+    private boolean loaded = false;
+
+    BackgroundTagQueue(File file) {
+        this.file = file;
+        this.configFile = new File(file.getPath() + ".config");
+    }
+
+    synchronized void configure(int maxSize, String overflow) {
+        this.maxSize = maxSize;
+        this.overflow = overflow;
+        saveConfig();
+        if (!loaded) {
+            // loaded under the new configuration, which is trimmed there
+            ensureLoaded();
+        } else if (trim()) {
+            rewrite();
+        }
+    }
+
+    /**
+     * @return false if the event was dropped because the queue is full (dropNewest)
+     */
+    synchronized boolean offer(ReadableMap event) {
+        ensureLoaded();
+        String line;
+        try {
+            line = JsonConvert.reactToJSON(event).toString();
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "fail to serialize tag event: " + ex);
+            return false;
+        }
+
+        if (events.size() >= maxSize) {
+            droppedCount++;
+            if (OVERFLOW_DROP_NEWEST.equals(overflow)) {
+                return false;
+            }
+            events.pollFirst();
+        }
+        events.addLast(line);
+
+        // the file keeps the dropped events until it's compacted
+        if (fileLines >= maxSize * 2) {
+            rewrite();
+        } else {
+            append(line);
+        }
+        return true;
+    }
+
+    /**
+     * @return the most recent event without removing it, or null
+     */
+    synchronized WritableMap peekLatest() {
+        ensureLoaded();
+        String line = events.peekLast();
+        return line != null ? parse(line) : null;
+    }
+
+    /**
+     * Remove and return up to max events, oldest first.
+     */
+    synchronized WritableArray drain(int max) {
+        ensureLoaded();
+        WritableArray result = Arguments.createArray();
+        int count = 0;
+        while (!events.isEmpty() && count < max) {
+            WritableMap event = parse(events.pollFirst());
+            if (event != null) {
+                result.pushMap(event);
+            }
+            count++;
+        }
+        if (count > 0) {
+            rewrite();
+        }
+        return result;
+    }
+
+    synchronized void clear() {
+        ensureLoaded();
+        events.clear();
+        rewrite();
+    }
+
+    synchronized int size() {
+        ensureLoaded();
+        return events.size();
+    }
+
+    synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private WritableMap parse(String line) {
+        try {
+            return JsonConvert.jsonToReact(new JSONObject(line));
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "fail to parse stored tag event: " + ex);
+            return null;
+        }
+    }
+
+    /**
+     * Drop the events above maxSize according to the overflow policy.
+     *
+     * @return true if any event was dropped
+     */
+    private boolean trim() {
+        boolean trimmed = false;
+        while (events.size() > maxSize) {
+            if (OVERFLOW_DROP_NEWEST.equals(overflow)) {
+                events.pollLast();
+            } else {
+                events.pollFirst();
+            }
+            droppedCount++;
+            trimmed = true;
+        }
+        return trimmed;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        loadConfig();
+        if (!file.exists()) {
+            return;
+        }
+
+        String content;
+        try {
+            content = new String(readFile(file), UTF_8);
+        } catch (IOException ex) {
+            Log.d(LOG_TAG, "fail to load background tags: " + ex);
+            return;
+        }
+        // a partially written last line (process killed while appending) is skipped, the file is then
+        // rewritten so the next append doesn't continue that line
+        boolean torn = !content.isEmpty() && !content.endsWith("\n");
+        for (String line : content.split("\n")) {
+            if (line.isEmpty() || !line.endsWith("}")) {
+                torn = true;
+                continue;
+            }
+            events.addLast(line);
+        }
+        fileLines = events.size();
+        // trimmed only now, with the configuration the events were queued under
+        if (trim() || torn) {
+            rewrite();
+        }
+    }
+
+    private void loadConfig() {
+        if (!configFile.exists()) {
+            return;
+        }
+        try {
+            JSONObject config = new JSONObject(new String(readFile(configFile), UTF_8));
+            maxSize = config.getInt("maxSize");
+            overflow = config.getString("overflow");
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "fail to load background queue config: " + ex);
+        }
+    }
+
+    private void saveConfig() {
+        Writer writer = null;
+        try {
+            JSONObject config = new JSONObject();
+            config.put("maxSize", maxSize);
+            config.put("overflow", overflow);
+            writer = new OutputStreamWriter(new FileOutputStream(configFile, false), UTF_8);
+            writer.write(config.toString());
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "fail to persist background queue config: " + ex);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            ByteArrayOutputStream content = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) > 0) {
+                content.write(buffer, 0, count);
+            }
+            return content.toByteArray();
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    private void append(String line) {
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8);
+            writer.write(line);
+            writer.write('\n');
+            fileLines++;
+        } catch (IOException ex) {
+            Log.d(LOG_TAG, "fail to persist background tag: " + ex);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private void rewrite() {
+        // write a temp file first and rename it, so a crash never leaves us with a half written queue
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tmp, false), UTF_8);
+            for (String line : events) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.close();
+            writer = null;
+            if (!tmp.renameTo(file)) {
+                throw new IOException("fail to rename " + tmp);
+            }
+            fileLines = events.size();
+        } catch (IOException ex) {
+            Log.d(LOG_TAG, "fail to persist background tags: " + ex);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ex) {
+                // nothing to do
+            }
+        }
+    }
+}
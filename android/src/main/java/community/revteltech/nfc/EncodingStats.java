@@ -0,0 +1,66 @@
+package community.revteltech.nfc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Throughput and failure counters of the encoding scan loop (script "encode"),
+ * readable while the loop runs and returned by stopScanLoop.
+ */
+class EncodingStats {
+    static final String REASON_NOT_NDEF = "notNdef";
+    static final String REASON_READ_ONLY = "readOnly";
+    static final String REASON_TOO_SMALL = "tooSmall";
+    static final String REASON_TAG_LOST = "tagLost";
+    static final String REASON_FORMAT_FAIL = "formatFail";
+    static final String REASON_WRITE_FAIL = "writeFail";
+    static final String REASON_VERIFY_FAIL = "verifyFail";
+    static final String REASON_LOCK_FAIL = "lockFail";
+
+    private final long startNanos;
+    private long lastNanos;
+    private long encoded = 0;
+    private long failed = 0;
+    private long retries = 0;
+    private final Map<String, Long> failures = new LinkedHashMap<>();
+
+    EncodingStats(long nowNanos) {
+        startNanos = nowNanos;
+        lastNanos = nowNanos;
+    }
+
+    /**
+     * @param reason null once the tag went through the whole pipeline
+     * @param attempts how often the write (and verify) ran, 1 without retry
+     */
+    synchronized void record(String reason, int attempts, long nowNanos) {
+        if (reason == null) {
+            encoded++;
+        } else {
+            failed++;
+            Long count = failures.get(reason);
+            failures.put(reason, count == null ? 1 : count + 1);
+        }
+        retries += Math.max(0, attempts - 1);
+        lastNanos = nowNanos;
+    }
+
+    synchronized WritableMap toReact() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("encoded", encoded);
+        stats.putDouble("failed", failed);
+        stats.putDouble("retries", retries);
+        // from the start to the last tag, so idle time after the batch doesn't lower the rate
+        double minutes = (lastNanos - startNanos) / 60e9;
+        stats.putDouble("tagsPerMinute", minutes > 0 ? encoded / minutes : 0);
+        WritableMap reasons = Arguments.createMap();
+        for (Map.Entry<String, Long> failure : failures.entrySet()) {
+            reasons.putDouble(failure.getKey(), failure.getValue());
+        }
+        stats.putMap("failures", reasons);
+        return stats;
+    }
+}
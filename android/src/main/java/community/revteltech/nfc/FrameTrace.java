@@ -0,0 +1,371 @@
+package community.revteltech.nfc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in recorder of the frames exchanged with the tag (command, response, timing and failure).
+ *
+ * Frames go into a preallocated direct ring buffer, the oldest frames are dropped once it's full,
+ * so recording doesn't allocate per frame. flush() then writes the buffered frames to a memory mapped log:
+ *
+ *   header: magic "NFCT", int version, int frameCount, int droppedCount
+ *   frame:  int length (of the rest), byte op, byte tech, long startNanos (since start()), int durationMicros,
+ *           int commandLength, command, int responseLength (-1 if failed), response, int errorLength, error (ASCII)
+ *
+ * The typed tech calls (readBlock, writePage, ...) are recorded as the raw frame they send,
+ * so a log can be replayed against a simulated tag. MIFARE Classic authentications are recorded
+ * without the key.
+ */
+class FrameTrace {
+    static final int MAGIC = 0x4E464354; // "NFCT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int DEFAULT_CAPACITY = 256 * 1024;
+
+    // what the typed calls record as response, they don't expose the raw one
+    static final byte[] EMPTY_RESPONSE = new byte[0];
+    static final byte[] ACK_RESPONSE = { 0x0A };
+
+    static final int OP_TRANSCEIVE = 1;
+    static final int OP_MIFARE_CLASSIC_AUTH = 2;
+    static final int OP_MIFARE_CLASSIC_READ = 3;
+    static final int OP_MIFARE_CLASSIC_WRITE = 4;
+    static final int OP_MIFARE_CLASSIC_VALUE = 5;
+    static final int OP_MIFARE_ULTRALIGHT_READ = 6;
+    static final int OP_MIFARE_ULTRALIGHT_WRITE = 7;
+    static final int OP_NDEF_READ = 8;
+    static final int OP_NDEF_WRITE = 9;
+
+    static final String[] TECHS = {
+            "NfcA", "NfcB", "NfcF", "NfcV", "IsoDep", "MifareClassic", "MifareUltralight", "Ndef", "NdefFormatable",
+    };
+    private static final int TECH_UNKNOWN = 0xff;
+
+    // int length + byte op + byte tech + long start + int duration + 3 int lengths
+    private static final int FRAME_OVERHEAD = 4 + 1 + 1 + 8 + 4 + 4 * 3;
+    private static final int MAX_ERROR_LENGTH = 256;
+
+    private volatile boolean enabled = false;
+    private ByteBuffer ring;
+    private int head = 0; // oldest frame
+    private int used = 0;
+    private int frameCount = 0;
+    private int droppedCount = 0;
+    private long originNanos;
+
+    // the frame between begin() and end() / fail()
+    private boolean pending = false;
+    private int pendingOp;
+    private int pendingTech;
+    private long pendingStart;
+    private byte[] pendingCommand = new byte[64];
+    private int pendingCommandLength;
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    synchronized void start(int capacity) {
+        if (ring == null || ring.capacity() != capacity) {
+            ring = ByteBuffer.allocateDirect(capacity);
+        }
+        head = 0;
+        used = 0;
+        frameCount = 0;
+        droppedCount = 0;
+        pending = false;
+        originNanos = System.nanoTime();
+        enabled = true;
+    }
+
+    /**
+     * Stop recording, the frames stay buffered until the next start().
+     */
+    synchronized void stop() {
+        enabled = false;
+        pending = false;
+    }
+
+    synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    synchronized int getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Wrap the transport so every frame through it is recorded, returns it unchanged while disabled.
+     */
+    TagTransport wrap(final TagTransport transport) {
+        if (!enabled || transport == null) {
+            return transport;
+        }
+        return new TagTransport() {
+            @Override
+            public String getTechType() {
+                return transport.getTechType();
+            }
+
+            @Override
+            public byte[] transceive(byte[] data) throws IOException {
+                begin(OP_TRANSCEIVE, transport.getTechType(), data);
+                try {
+                    byte[] response = transport.transceive(data);
+                    end(response);
+                    return response;
+                } catch (IOException | RuntimeException ex) {
+                    fail(ex);
+                    throw ex;
+                }
+            }
+
+            @Override
+            public int getMaxTransceiveLength() {
+                return transport.getMaxTransceiveLength();
+            }
+
+            @Override
+            public boolean setTimeout(int timeout) {
+                return transport.setTimeout(timeout);
+            }
+        };
+    }
+
+    synchronized void begin(int op, String tech, byte[] command) {
+        if (!enabled) {
+            return;
+        }
+        beginFrame(op, tech, command != null ? command.length : 0);
+        if (command != null) {
+            System.arraycopy(command, 0, pendingCommand, 0, command.length);
+        }
+    }
+
+    /**
+     * Begin a frame made of a command code, an address and an optional payload, e.g. READ (0x30, block).
+     */
+    synchronized void begin(int op, String tech, int code, int address, byte[] payload) {
+        if (!enabled) {
+            return;
+        }
+        int payloadLength = payload != null ? payload.length : 0;
+        beginFrame(op, tech, 2 + payloadLength);
+        pendingCommand[0] = (byte) code;
+        pendingCommand[1] = (byte) address;
+        if (payload != null) {
+            System.arraycopy(payload, 0, pendingCommand, 2, payloadLength);
+        }
+    }
+
+    /**
+     * Begin a value block frame (increment / decrement), the operand is little endian like on the wire.
+     */
+    synchronized void begin(int op, String tech, int code, int address, int operand) {
+        if (!enabled) {
+            return;
+        }
+        beginFrame(op, tech, 6);
+        pendingCommand[0] = (byte) code;
+        pendingCommand[1] = (byte) address;
+        for (int i = 0; i < 4; i++) {
+            pendingCommand[2 + i] = (byte) (operand >>> (8 * i));
+        }
+    }
+
+    private void beginFrame(int op, String tech, int commandLength) {
+        if (pendingCommand.length < commandLength) {
+            pendingCommand = new byte[Math.max(commandLength, pendingCommand.length * 2)];
+        }
+        pending = true;
+        pendingOp = op;
+        pendingTech = techIndex(tech);
+        pendingCommandLength = commandLength;
+        pendingStart = System.nanoTime();
+    }
+
+    synchronized void end(byte[] response) {
+        if (!pending) {
+            return;
+        }
+        pending = false;
+        append(response, null);
+    }
+
+    /**
+     * Record the pending frame as failed, a no-op if there is none (e.g. the failure happened before any I/O).
+     */
+    synchronized void fail(Throwable error) {
+        if (!pending) {
+            return;
+        }
+        fail(error.toString());
+    }
+
+    synchronized void fail(String error) {
+        if (!pending) {
+            return;
+        }
+        pending = false;
+        append(null, error);
+    }
+
+    private void append(byte[] response, String error) {
+        long duration = System.nanoTime() - pendingStart;
+        int responseLength = response != null ? response.length : 0;
+        int errorLength = error != null ? Math.min(error.length(), MAX_ERROR_LENGTH) : 0;
+        int size = FRAME_OVERHEAD + pendingCommandLength + responseLength + errorLength;
+        if (size > ring.capacity()) {
+            droppedCount++;
+            return;
+        }
+        // make room by dropping the oldest frames
+        while (ring.capacity() - used < size) {
+            int oldest = getInt(head) + 4;
+            head = (head + oldest) % ring.capacity();
+            used -= oldest;
+            frameCount--;
+            droppedCount++;
+        }
+
+        int pos = (head + used) % ring.capacity();
+        pos = putInt(pos, size - 4);
+        pos = put(pos, (byte) pendingOp);
+        pos = put(pos, (byte) pendingTech);
+        pos = putLong(pos, pendingStart - originNanos);
+        pos = putInt(pos, (int) Math.min(duration / 1000, Integer.MAX_VALUE));
+        pos = putInt(pos, pendingCommandLength);
+        for (int i = 0; i < pendingCommandLength; i++) {
+            pos = put(pos, pendingCommand[i]);
+        }
+        pos = putInt(pos, response != null ? responseLength : -1);
+        for (int i = 0; i < responseLength; i++) {
+            pos = put(pos, response[i]);
+        }
+        pos = putInt(pos, errorLength);
+        for (int i = 0; i < errorLength; i++) {
+            pos = put(pos, (byte) error.charAt(i));
+        }
+        used += size;
+        frameCount++;
+    }
+
+    /**
+     * Write the buffered frames (oldest first) into the file through a memory mapping, the buffer is kept.
+     */
+    synchronized void flush(File file) throws IOException {
+        int size = HEADER_SIZE + used;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(size);
+            MappedByteBuffer out = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.BIG_ENDIAN);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(frameCount);
+            out.putInt(droppedCount);
+            for (int i = 0; i < used; i++) {
+                out.put(ring.get((head + i) % ring.capacity()));
+            }
+            out.force();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static int techIndex(String tech) {
+        for (int i = 0; i < TECHS.length; i++) {
+            if (TECHS[i].equals(tech)) {
+                return i;
+            }
+        }
+        return TECH_UNKNOWN;
+    }
+
+    private int put(int pos, byte value) {
+        ring.put(pos, value);
+        return (pos + 1) % ring.capacity();
+    }
+
+    private int putInt(int pos, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            pos = put(pos, (byte) (value >>> shift));
+        }
+        return pos;
+    }
+
+    private int putLong(int pos, long value) {
+        pos = putInt(pos, (int) (value >>> 32));
+        return putInt(pos, (int) value);
+    }
+
+    private int getInt(int pos) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (ring.get((pos + i) % ring.capacity()) & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * One frame of a flushed log, for the offline tools.
+     */
+    static class Frame {
+        int op;
+        String tech;
+        long startNanos;
+        int durationMicros;
+        byte[] command;
+        byte[] response; // null if the frame failed
+        String error;
+    }
+
+    static List<Frame> readLog(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            MappedByteBuffer in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new IOException("not a frame trace: " + file);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported frame trace version " + version);
+            }
+            int count = in.getInt();
+            in.getInt(); // dropped
+
+            List<Frame> frames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                in.getInt(); // length
+                Frame frame = new Frame();
+                frame.op = in.get() & 0xff;
+                int tech = in.get() & 0xff;
+                frame.tech = tech < TECHS.length ? TECHS[tech] : null;
+                frame.startNanos = in.getLong();
+                frame.durationMicros = in.getInt();
+                frame.command = new byte[in.getInt()];
+                in.get(frame.command);
+                int responseLength = in.getInt();
+                if (responseLength >= 0) {
+                    frame.response = new byte[responseLength];
+                    in.get(frame.response);
+                }
+                byte[] error = new byte[in.getInt()];
+                in.get(error);
+                frame.error = error.length > 0 ? new String(error, "US-ASCII") : null;
+                frames.add(frame);
+            }
+            return frames;
+        } finally {
+            raf.close();
+        }
+    }
+}
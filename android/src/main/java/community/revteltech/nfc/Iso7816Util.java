@@ -0,0 +1,177 @@
+package community.revteltech.nfc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * ISO 7816-4 file access (SELECT, READ BINARY, UPDATE BINARY) for IsoDep cards, sent through the
+ * TagTransport. Files larger than one APDU are split into as few commands as the transceive length
+ * allows, with extended length APDUs when the reader supports them, and the 61xx / 6Cxx status
+ * words are handled here so a whole file comes back in one call.
+ */
+class Iso7816Util {
+    static final int SW_OK = 0x9000;
+    static final int SW_END_OF_FILE = 0x6282;
+    static final int SW_WRONG_OFFSET = 0x6B00;
+    static final byte INS_SELECT = (byte) 0xA4;
+    static final byte INS_READ_BINARY = (byte) 0xB0;
+    static final byte INS_UPDATE_BINARY = (byte) 0xD6;
+    static final byte INS_GET_RESPONSE = (byte) 0xC0;
+    // P1-P2 offset of READ / UPDATE BINARY with bit 8 of P1 cleared
+    static final int MAX_OFFSET = 0x7FFF;
+
+    private static final int SHORT_MAX_LE = 256;
+    private static final int SHORT_MAX_LC = 255;
+    private static final int EXTENDED_MAX_LE = 65536;
+    private static final int EXTENDED_MAX_LC = 65535;
+    // GET RESPONSE returns at most 256 bytes, this covers the largest extended length response
+    static final int MAX_GET_RESPONSE = 256;
+
+    /**
+     * SELECT by file identifier (2 bytes, no response data) or by DF name / AID.
+     *
+     * @return the response data without the status word, e.g. the FCI of an application
+     */
+    static byte[] select(TagTransport transport, byte[] id) throws IOException {
+        byte[] command;
+        if (id.length == 2) {
+            command = new byte[]{0x00, INS_SELECT, 0x00, 0x0C, 0x02, id[0], id[1]};
+        } else {
+            command = new byte[6 + id.length];
+            command[1] = INS_SELECT;
+            command[2] = 0x04;
+            command[4] = (byte) id.length;
+            System.arraycopy(id, 0, command, 5, id.length);
+            // Le 00, the FCI if the application returns one
+        }
+        byte[] response = followResponseChain(transport, transport.transceive(command));
+        checkStatusWord("SELECT", response);
+        return data(response);
+    }
+
+    /**
+     * READ BINARY of the currently selected EF.
+     *
+     * @param length the number of bytes, or 0 to read up to the end of the file
+     * @return the data, shorter than length if the file ends before
+     */
+    static byte[] readBinary(TagTransport transport, int offset, int length, boolean extended) throws IOException {
+        int maxLe = Math.min(extended ? EXTENDED_MAX_LE : SHORT_MAX_LE, transport.getMaxTransceiveLength() - 2);
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length > 0 ? length : maxLe);
+        int position = offset;
+        while (length == 0 || result.size() < length) {
+            if (position > MAX_OFFSET) {
+                throw new IOException("READ BINARY offset " + position + " is out of range");
+            }
+            int le = length == 0 ? maxLe : Math.min(maxLe, length - result.size());
+            byte[] response = followResponseChain(transport, transport.transceive(readBinaryCommand(position, le, extended)));
+            int sw = statusWord(response);
+            boolean last = false;
+            if ((sw & 0xff00) == 0x6C00) {
+                // wrong Le, the card tells how many bytes are left
+                le = (sw & 0xff) == 0 ? SHORT_MAX_LE : sw & 0xff;
+                last = true;
+                response = followResponseChain(transport, transport.transceive(readBinaryCommand(position, le, false)));
+                sw = statusWord(response);
+            }
+            if (sw == SW_WRONG_OFFSET && position > offset) {
+                // the previous chunk ended exactly at the end of the file
+                break;
+            }
+            if (sw != SW_OK && sw != SW_END_OF_FILE) {
+                checkStatusWord("READ BINARY", response);
+            }
+
+            int count = response.length - 2;
+            result.write(response, 0, count);
+            position += count;
+            if (last || sw == SW_END_OF_FILE || count < le) {
+                break;
+            }
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * UPDATE BINARY of the currently selected EF, in as few commands as the transceive length allows.
+     */
+    static void updateBinary(TagTransport transport, int offset, byte[] data, boolean extended) throws IOException {
+        int headerLength = extended ? 7 : 5;
+        int maxLc = Math.min(extended ? EXTENDED_MAX_LC : SHORT_MAX_LC, transport.getMaxTransceiveLength() - headerLength);
+        if (offset + data.length - 1 > MAX_OFFSET) {
+            throw new IOException("UPDATE BINARY offset " + (offset + data.length - 1) + " is out of range");
+        }
+        for (int written = 0; written < data.length; ) {
+            int lc = Math.min(maxLc, data.length - written);
+            int position = offset + written;
+            byte[] command = new byte[headerLength + lc];
+            command[1] = INS_UPDATE_BINARY;
+            command[2] = (byte) (position >>> 8);
+            command[3] = (byte) position;
+            if (extended) {
+                command[5] = (byte) (lc >>> 8);
+                command[6] = (byte) lc;
+            } else {
+                command[4] = (byte) lc;
+            }
+            System.arraycopy(data, written, command, headerLength, lc);
+            checkStatusWord("UPDATE BINARY", transport.transceive(command));
+            written += lc;
+        }
+    }
+
+    /**
+     * Keep issuing GET RESPONSE while the card answers with SW1=0x61,
+     * the returned buffer contains all the data followed by the final status word.
+     * A card which keeps answering 61xx past MAX_GET_RESPONSE commands fails with an IOException.
+     */
+    static byte[] followResponseChain(TagTransport transport, byte[] response) throws IOException {
+        ByteArrayOutputStream data = null;
+        int count = 0;
+        while (response.length >= 2 && (response[response.length - 2] & 0xff) == 0x61) {
+            if (++count > MAX_GET_RESPONSE) {
+                throw new IOException("GET RESPONSE chain longer than " + MAX_GET_RESPONSE + " commands");
+            }
+            if (data == null) {
+                data = new ByteArrayOutputStream();
+            }
+            data.write(response, 0, response.length - 2);
+            byte[] getResponse = new byte[] { 0x00, INS_GET_RESPONSE, 0x00, 0x00, response[response.length - 1] };
+            response = transport.transceive(getResponse);
+        }
+
+        if (data == null) {
+            return response;
+        }
+        data.write(response, 0, response.length);
+        return data.toByteArray();
+    }
+
+    private static byte[] readBinaryCommand(int offset, int le, boolean extended) {
+        // Le 256 (short) / 65536 (extended) are encoded as 0
+        if (extended && le > SHORT_MAX_LE) {
+            return new byte[]{0x00, INS_READ_BINARY, (byte) (offset >>> 8), (byte) offset, 0x00, (byte) (le >>> 8), (byte) le};
+        }
+        return new byte[]{0x00, INS_READ_BINARY, (byte) (offset >>> 8), (byte) offset, (byte) le};
+    }
+
+    static int statusWord(byte[] response) {
+        if (response == null || response.length < 2) {
+            return -1;
+        }
+        return (response[response.length - 2] & 0xff) << 8 | (response[response.length - 1] & 0xff);
+    }
+
+    private static void checkStatusWord(String command, byte[] response) throws IOException {
+        int sw = statusWord(response);
+        if (sw != SW_OK) {
+            throw new IOException(String.format("%s failed: SW %04X", command, sw & 0xffff));
+        }
+    }
+
+    private static byte[] data(byte[] response) {
+        byte[] data = new byte[response.length - 2];
+        System.arraycopy(response, 0, data, 0, data.length);
+        return data;
+    }
+}
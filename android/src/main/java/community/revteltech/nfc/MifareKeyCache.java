@@ -0,0 +1,91 @@
+package community.revteltech.nfc;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which key unlocked each MIFARE Classic sector.
+ * Keys are cached per tag UID and sector (bounded, least recently used entries are evicted first),
+ * and per sector only as a fallback hint, so the next card of the same batch tries that key first.
+ */
+class MifareKeyCache {
+    static final int DEFAULT_MAX_ENTRIES = 512;
+
+    static class Entry {
+        final char type;
+        final byte[] key;
+
+        Entry(char type, byte[] key) {
+            this.type = type;
+            this.key = key;
+        }
+    }
+
+    private final Map<Integer, Entry> sectorHints = new HashMap<>();
+    private final LinkedHashMap<String, Entry> uidEntries;
+    private long hits = 0;
+    private long misses = 0;
+
+    MifareKeyCache(final int maxEntries) {
+        uidEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static String uidKey(byte[] uid, int sector) {
+        return Util.bytesToHex(uid) + ":" + sector;
+    }
+
+    /**
+     * @return the key cached for this tag and sector, or the last key which unlocked this sector on any tag
+     */
+    synchronized Entry lookup(byte[] uid, int sector) {
+        Entry entry = uid != null ? uidEntries.get(uidKey(uid, sector)) : null;
+        return entry != null ? entry : sectorHints.get(sector);
+    }
+
+    /**
+     * Records the outcome of an authentication which started from the looked up hint.
+     */
+    synchronized void record(byte[] uid, int sector, Entry hint, Entry unlockedBy) {
+        if (hint != null && unlockedBy == hint) {
+            hits++;
+        } else {
+            misses++;
+        }
+
+        if (unlockedBy != null) {
+            remember(uid, sector, unlockedBy);
+        }
+    }
+
+    synchronized void remember(byte[] uid, int sector, Entry entry) {
+        sectorHints.put(sector, entry);
+        if (uid != null) {
+            uidEntries.put(uidKey(uid, sector), entry);
+        }
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return uidEntries.size();
+    }
+
+    synchronized void clear() {
+        sectorHints.clear();
+        uidEntries.clear();
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -2,9 +2,12 @@ package community.revteltech.nfc;
 
 import android.app.Activity;
 import android.content.pm.PackageManager;
+import android.nfc.TagLostException;
+import android.nfc.tech.MifareClassic;
 import android.os.Build;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.nio.charset.Charset;
 
@@ -81,4 +84,61 @@ class MifareUtil {
 		// We don't have reason to believe that it's not supported, or we can't detect it right now (we should wait when a tag is connected and do then some heuristics)
 		return true;
 	}
+
+	static boolean authenticate(MifareClassic mifareTag, int sector, char type, byte[] key, FrameTrace trace) throws IOException {
+		// the frame is recorded without the key, the trace is written to disk in plain
+		trace.begin(FrameTrace.OP_MIFARE_CLASSIC_AUTH, "MifareClassic", type == 'A' ? 0x60 : 0x61, mifareTag.sectorToBlock(sector), null);
+		boolean result;
+		try {
+			if (type == 'A') {
+				result = mifareTag.authenticateSectorWithKeyA(sector, key);
+			} else {
+				result = mifareTag.authenticateSectorWithKeyB(sector, key);
+			}
+		} catch (IOException ex) {
+			trace.fail(ex);
+			throw ex;
+		}
+
+		if (result) {
+			trace.end(FrameTrace.EMPTY_RESPONSE);
+		} else {
+			trace.fail("AUTH_FAIL");
+		}
+		return result;
+	}
+
+	/**
+	 * Tries the hint first (if any), then each candidate key with key A and then key B.
+	 * A lost tag is rethrown, any other failure just moves on to the next candidate.
+	 *
+	 * @return the key which unlocked the sector, or null if none of them did
+	 */
+	static MifareKeyCache.Entry authenticateWithCandidates(MifareClassic mifareTag, int sector, List<byte[]> keys, MifareKeyCache.Entry hint, FrameTrace trace) throws TagLostException {
+		if (hint != null && tryAuthenticate(mifareTag, sector, hint.type, hint.key, trace)) {
+			return hint;
+		}
+
+		for (byte[] key : keys) {
+			for (char type : new char[] { 'A', 'B' }) {
+				if (hint != null && hint.type == type && Arrays.equals(hint.key, key)) {
+					continue;
+				}
+				if (tryAuthenticate(mifareTag, sector, type, key, trace)) {
+					return new MifareKeyCache.Entry(type, key);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean tryAuthenticate(MifareClassic mifareTag, int sector, char type, byte[] key, FrameTrace trace) throws TagLostException {
+		try {
+			return authenticate(mifareTag, sector, type, key, trace);
+		} catch (TagLostException ex) {
+			throw ex;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
 }
@@ -0,0 +1,290 @@
+package community.revteltech.nfc;
+
+import android.nfc.FormatException;
+import android.nfc.NdefMessage;
+import android.nfc.NdefRecord;
+import android.util.Base64;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Native counterpart of ndef-lib: decodes the well-known record types into readable views,
+ * and builds NDEF messages from a compact record description, so js doesn't need to
+ * encode / decode the payload bytes itself.
+ */
+class NdefCodec {
+    static final String KIND_TEXT = "text";
+    static final String KIND_URI = "uri";
+    static final String KIND_SMART_POSTER = "smartPoster";
+    static final String KIND_MIME = "mime";
+    static final String KIND_WIFI_SIMPLE = "wifiSimple";
+    static final String KIND_ANDROID_APP = "androidApp";
+    static final String KIND_RAW = "raw";
+
+    static final String MIME_WFA_WSC = "application/vnd.wfa.wsc";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset UTF_16 = Charset.forName("UTF-16BE");
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    // the same table as RTD_URI_PROTOCOLS in ndef-lib
+    private static final String[] URI_PROTOCOLS = {
+            "",
+            "http://www.",
+            "https://www.",
+            "http://",
+            "https://",
+            "tel:",
+            "mailto:",
+            "ftp://anonymous:anonymous@",
+            "ftp://ftp.",
+            "ftps://",
+            "sftp://",
+            "smb://",
+            "nfs://",
+            "ftp://",
+            "dav://",
+            "news:",
+            "telnet://",
+            "imap:",
+            "rtsp://",
+            "urn:",
+            "pop:",
+            "sip:",
+            "sips:",
+            "tftp:",
+            "btspp://",
+            "btl2cap://",
+            "btgoep://",
+            "tcpobex://",
+            "irdaobex://",
+            "file://",
+            "urn:epc:id:",
+            "urn:epc:tag:",
+            "urn:epc:pat:",
+            "urn:epc:raw:",
+            "urn:epc:",
+            "urn:nfc:",
+    };
+
+    private static final int WSC_CREDENTIAL = 0x100e;
+    private static final int WSC_AUTH_TYPE = 0x1003;
+    private static final int WSC_SSID = 0x1045;
+    private static final int WSC_NETWORK_KEY = 0x1027;
+    private static final byte[] WSC_AUTH_WPA2_PSK = { 0x00, 0x20 };
+
+    /**
+     * @return a decoded view of the record, or null if it's not one of the supported types
+     */
+    static WritableMap decode(NdefRecord record) {
+        byte[] type = record.getType();
+        byte[] payload = record.getPayload();
+        try {
+            switch (record.getTnf()) {
+                case NdefRecord.TNF_WELL_KNOWN:
+                    if (Arrays.equals(type, NdefRecord.RTD_TEXT)) {
+                        return decodeText(payload);
+                    } else if (Arrays.equals(type, NdefRecord.RTD_URI)) {
+                        WritableMap view = Arguments.createMap();
+                        view.putString("kind", KIND_URI);
+                        view.putString("uri", decodeUri(payload));
+                        return view;
+                    } else if (Arrays.equals(type, NdefRecord.RTD_SMART_POSTER)) {
+                        return decodeSmartPoster(payload);
+                    }
+                    return null;
+                case NdefRecord.TNF_ABSOLUTE_URI: {
+                    WritableMap view = Arguments.createMap();
+                    view.putString("kind", KIND_URI);
+                    view.putString("uri", new String(type, UTF_8));
+                    return view;
+                }
+                case NdefRecord.TNF_MIME_MEDIA: {
+                    String mimeType = new String(type, US_ASCII);
+                    if (MIME_WFA_WSC.equals(mimeType)) {
+                        return decodeWifiSimple(payload);
+                    }
+                    WritableMap view = Arguments.createMap();
+                    view.putString("kind", KIND_MIME);
+                    view.putString("mimeType", mimeType);
+                    return view;
+                }
+            }
+        } catch (RuntimeException | FormatException ex) {
+            // malformed payload, the raw record is still reported
+        }
+        return null;
+    }
+
+    private static WritableMap decodeText(byte[] payload) {
+        int status = payload[0] & 0xff;
+        int langLength = status & 0x3f;
+        boolean utf16 = (status & 0x80) != 0;
+
+        WritableMap view = Arguments.createMap();
+        view.putString("kind", KIND_TEXT);
+        view.putString("lang", new String(payload, 1, langLength, US_ASCII));
+        view.putString("encoding", utf16 ? "UTF-16" : "UTF-8");
+        view.putString("text", new String(payload, 1 + langLength, payload.length - 1 - langLength, utf16 ? UTF_16 : UTF_8));
+        return view;
+    }
+
+    private static String decodeUri(byte[] payload) {
+        int code = payload[0] & 0xff;
+        // 36 to 255 should be ""
+        String prefix = code < URI_PROTOCOLS.length ? URI_PROTOCOLS[code] : "";
+        return prefix + new String(payload, 1, payload.length - 1, UTF_8);
+    }
+
+    private static WritableMap decodeSmartPoster(byte[] payload) throws FormatException {
+        WritableMap view = Arguments.createMap();
+        view.putString("kind", KIND_SMART_POSTER);
+        for (NdefRecord nested : new NdefMessage(payload).getRecords()) {
+            if (nested.getTnf() != NdefRecord.TNF_WELL_KNOWN) {
+                continue;
+            }
+            if (Arrays.equals(nested.getType(), NdefRecord.RTD_URI) && !view.hasKey("uri")) {
+                view.putString("uri", decodeUri(nested.getPayload()));
+            } else if (Arrays.equals(nested.getType(), NdefRecord.RTD_TEXT) && !view.hasKey("title")) {
+                view.putString("title", decodeText(nested.getPayload()).getString("text"));
+            }
+        }
+        return view;
+    }
+
+    private static WritableMap decodeWifiSimple(byte[] payload) {
+        WritableMap view = Arguments.createMap();
+        view.putString("kind", KIND_WIFI_SIMPLE);
+        int offset = 0;
+        while (offset + 4 <= payload.length) {
+            int fieldId = ((payload[offset] & 0xff) << 8) | (payload[offset + 1] & 0xff);
+            int length = ((payload[offset + 2] & 0xff) << 8) | (payload[offset + 3] & 0xff);
+            if (fieldId == WSC_CREDENTIAL) {
+                int credentialOffset = offset + 4;
+                int credentialEnd = Math.min(credentialOffset + length, payload.length);
+                while (credentialOffset + 4 <= credentialEnd) {
+                    int id = ((payload[credentialOffset] & 0xff) << 8) | (payload[credentialOffset + 1] & 0xff);
+                    int len = ((payload[credentialOffset + 2] & 0xff) << 8) | (payload[credentialOffset + 3] & 0xff);
+                    int valueOffset = credentialOffset + 4;
+                    if (id == WSC_SSID) {
+                        view.putString("ssid", new String(payload, valueOffset, len, UTF_8));
+                    } else if (id == WSC_NETWORK_KEY) {
+                        view.putString("networkKey", new String(payload, valueOffset, len, UTF_8));
+                    } else if (id == WSC_AUTH_TYPE) {
+                        view.putArray("authType", Util.byteArrayToReact(Arrays.copyOfRange(payload, valueOffset, valueOffset + len)));
+                    }
+                    credentialOffset = valueOffset + len;
+                }
+            }
+            offset += 4 + length;
+        }
+        return view;
+    }
+
+    /**
+     * Build a message from js record descriptions, for example
+     * [{kind: 'uri', uri: 'https://reactnative.dev'}, {kind: 'text', text: 'hello', lang: 'en'}]
+     */
+    static NdefMessage buildMessage(ReadableArray records) {
+        NdefRecord[] ndefRecords = new NdefRecord[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            ndefRecords[i] = buildRecord(records.getMap(i));
+        }
+        return new NdefMessage(ndefRecords);
+    }
+
+    static NdefRecord buildRecord(ReadableMap desc) {
+        String kind = desc.getString("kind");
+        switch (kind) {
+            case KIND_TEXT:
+                return createText(desc.getString("text"), desc.hasKey("lang") ? desc.getString("lang") : "en");
+            case KIND_URI:
+                return createUri(desc.getString("uri"));
+            case KIND_SMART_POSTER: {
+                NdefRecord uri = createUri(desc.getString("uri"));
+                NdefMessage nested;
+                if (desc.hasKey("title")) {
+                    NdefRecord title = createText(desc.getString("title"), desc.hasKey("lang") ? desc.getString("lang") : "en");
+                    nested = new NdefMessage(uri, title);
+                } else {
+                    nested = new NdefMessage(uri);
+                }
+                return new NdefRecord(NdefRecord.TNF_WELL_KNOWN, NdefRecord.RTD_SMART_POSTER, new byte[0], nested.toByteArray());
+            }
+            case KIND_MIME:
+                return NdefRecord.createMime(desc.getString("mimeType"), bytesOf(desc, "data"));
+            case KIND_WIFI_SIMPLE: {
+                byte[] authType = desc.hasKey("authType") ? bytesOf(desc, "authType") : WSC_AUTH_WPA2_PSK;
+                return NdefRecord.createMime(MIME_WFA_WSC, encodeWifiSimple(desc.getString("ssid"), desc.getString("networkKey"), authType));
+            }
+            case KIND_ANDROID_APP:
+                return NdefRecord.createApplicationRecord(desc.getString("packageName"));
+            case KIND_RAW:
+                return new NdefRecord(
+                        (short) desc.getInt("tnf"),
+                        bytesOf(desc, "type"),
+                        desc.hasKey("id") ? bytesOf(desc, "id") : new byte[0],
+                        bytesOf(desc, "payload"));
+        }
+        throw new IllegalArgumentException("unsupported record kind: " + kind);
+    }
+
+    private static NdefRecord createText(String text, String lang) {
+        byte[] langBytes = lang.getBytes(US_ASCII);
+        byte[] textBytes = text.getBytes(UTF_8);
+        byte[] payload = new byte[1 + langBytes.length + textBytes.length];
+        // UTF-8, so only the language code length goes into the status byte
+        payload[0] = (byte) (langBytes.length & 0x3f);
+        System.arraycopy(langBytes, 0, payload, 1, langBytes.length);
+        System.arraycopy(textBytes, 0, payload, 1 + langBytes.length, textBytes.length);
+        return new NdefRecord(NdefRecord.TNF_WELL_KNOWN, NdefRecord.RTD_TEXT, new byte[0], payload);
+    }
+
+    private static NdefRecord createUri(String uri) {
+        // check each protocol, the longest match wins ("urn:" is a prefix of the "urn:epc:..." ones)
+        int code = 0;
+        for (int i = 1; i < URI_PROTOCOLS.length; i++) {
+            if (uri.startsWith(URI_PROTOCOLS[i]) && URI_PROTOCOLS[i].length() > URI_PROTOCOLS[code].length()) {
+                code = i;
+            }
+        }
+        byte[] rest = uri.substring(URI_PROTOCOLS[code].length()).getBytes(UTF_8);
+        byte[] payload = new byte[1 + rest.length];
+        payload[0] = (byte) code;
+        System.arraycopy(rest, 0, payload, 1, rest.length);
+        return new NdefRecord(NdefRecord.TNF_WELL_KNOWN, NdefRecord.RTD_URI, new byte[0], payload);
+    }
+
+    private static byte[] encodeWifiSimple(String ssid, String networkKey, byte[] authType) {
+        ByteArrayOutputStream credential = new ByteArrayOutputStream();
+        writeTlv(credential, WSC_AUTH_TYPE, authType);
+        writeTlv(credential, WSC_SSID, ssid.getBytes(UTF_8));
+        writeTlv(credential, WSC_NETWORK_KEY, networkKey.getBytes(UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTlv(out, WSC_CREDENTIAL, credential.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static void writeTlv(ByteArrayOutputStream out, int fieldId, byte[] value) {
+        out.write((fieldId >> 8) & 0xff);
+        out.write(fieldId & 0xff);
+        out.write((value.length >> 8) & 0xff);
+        out.write(value.length & 0xff);
+        out.write(value, 0, value.length);
+    }
+
+    private static byte[] bytesOf(ReadableMap desc, String key) {
+        if (desc.getType(key) == ReadableType.String) {
+            return Base64.decode(desc.getString(key), Base64.DEFAULT);
+        }
+        return Util.rnArrayToBytes(desc.getArray(key));
+    }
+}
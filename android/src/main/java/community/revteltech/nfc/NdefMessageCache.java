@@ -0,0 +1,90 @@
+package community.revteltech.nfc;
+
+import android.nfc.NdefMessage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The last known NDEF message of each tag, so repeated getNdefMessage calls in a session
+ * don't have to go over the air (see setNdefCachePolicy).
+ *
+ * Entries are keyed by UID (bounded, least recently used entries are evicted first) and carry
+ * the capability container as Ndef reports it (type, max size, writable), a tag which was
+ * reformatted or locked since then doesn't match anymore.
+ */
+class NdefMessageCache {
+    static final int DEFAULT_MAX_ENTRIES = 64;
+    static final String POLICY_ALWAYS_FRESH = "alwaysFresh";
+    static final String POLICY_CACHE_FIRST = "cacheFirst";
+
+    static class Entry {
+        final String capability;
+        final NdefMessage message; // null for an empty tag
+
+        Entry(String capability, NdefMessage message) {
+            this.capability = capability;
+            this.message = message;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    NdefMessageCache(final int maxEntries) {
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    static String capability(String type, int maxSize, boolean writable) {
+        return type + ":" + maxSize + ":" + writable;
+    }
+
+    /**
+     * @return the cached entry if it matches the tag's capability container, counted as hit or miss
+     */
+    synchronized Entry lookup(byte[] uid, String capability) {
+        Entry entry = uid != null ? entries.get(Util.bytesToHex(uid)) : null;
+        if (entry != null && entry.capability.equals(capability)) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        return null;
+    }
+
+    synchronized void put(byte[] uid, String capability, NdefMessage message) {
+        if (uid != null) {
+            entries.put(Util.bytesToHex(uid), new Entry(capability, message));
+        }
+    }
+
+    synchronized void invalidate(byte[] uid) {
+        if (uid != null) {
+            entries.remove(Util.bytesToHex(uid));
+        }
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -0,0 +1,156 @@
+package community.revteltech.nfc;
+
+import android.nfc.FormatException;
+import android.nfc.NdefMessage;
+import android.nfc.NdefRecord;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An NDEF message registered once (see registerNdefTemplate) and written to many tags.
+ *
+ * The message is parsed and serialized at registration, a write only patches the placeholder
+ * bytes: the records without placeholders are shared between all writes, the others are rebuilt
+ * from their patched payload, so the message is never parsed again.
+ */
+class NdefTemplate {
+    private static final int FLAG_CF = 0x20;
+    private static final int FLAG_SR = 0x10;
+    private static final int FLAG_IL = 0x08;
+
+    static class Placeholder {
+        final String name;
+        final int offset; // in the serialized message
+        final int length;
+        int record;
+        int payloadOffset; // of the record's payload in the serialized message
+
+        Placeholder(String name, int offset, int length) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    static class Filled {
+        final NdefMessage message;
+        final byte[] bytes; // message serialized
+
+        Filled(NdefMessage message, byte[] bytes) {
+            this.message = message;
+            this.bytes = bytes;
+        }
+    }
+
+    private final byte[] bytes;
+    private final NdefRecord[] records;
+    private final NdefMessage message;
+    private final Map<String, Placeholder> placeholders = new HashMap<>();
+
+    /**
+     * @param bytes the serialized message, including the placeholder's initial value
+     * @param placeholders byte ranges inside record payloads which are substituted per write
+     */
+    NdefTemplate(byte[] bytes, Placeholder[] placeholders) throws FormatException {
+        this.bytes = bytes.clone();
+        this.message = new NdefMessage(this.bytes);
+        this.records = message.getRecords();
+
+        int[] payloadStarts = new int[records.length];
+        int[] payloadEnds = new int[records.length];
+        int offset = 0;
+        for (int i = 0; i < records.length; i++) {
+            int flags = this.bytes[offset] & 0xff;
+            if ((flags & FLAG_CF) != 0) {
+                // chunks are merged by the parser, they don't map back to one record
+                throw new FormatException("chunked records are not supported in templates");
+            }
+            int typeLength = this.bytes[offset + 1] & 0xff;
+            int pos = offset + 2;
+            int payloadLength;
+            if ((flags & FLAG_SR) != 0) {
+                payloadLength = this.bytes[pos++] & 0xff;
+            } else {
+                payloadLength = (this.bytes[pos] & 0xff) << 24 | (this.bytes[pos + 1] & 0xff) << 16
+                        | (this.bytes[pos + 2] & 0xff) << 8 | (this.bytes[pos + 3] & 0xff);
+                pos += 4;
+            }
+            int idLength = (flags & FLAG_IL) != 0 ? this.bytes[pos++] & 0xff : 0;
+            payloadStarts[i] = pos + typeLength + idLength;
+            payloadEnds[i] = payloadStarts[i] + payloadLength;
+            offset = payloadEnds[i];
+        }
+
+        for (Placeholder placeholder : placeholders) {
+            if (this.placeholders.containsKey(placeholder.name)) {
+                throw new FormatException("duplicate placeholder " + placeholder.name);
+            }
+            placeholder.record = -1;
+            for (int i = 0; i < records.length; i++) {
+                if (placeholder.offset >= payloadStarts[i]
+                        && placeholder.offset + placeholder.length <= payloadEnds[i]) {
+                    placeholder.record = i;
+                    placeholder.payloadOffset = payloadStarts[i];
+                    break;
+                }
+            }
+            if (placeholder.length <= 0 || placeholder.record < 0) {
+                throw new FormatException("placeholder " + placeholder.name + " is not inside a record payload");
+            }
+            for (Placeholder other : this.placeholders.values()) {
+                if (placeholder.offset < other.offset + other.length && other.offset < placeholder.offset + placeholder.length) {
+                    throw new FormatException("placeholder " + placeholder.name + " overlaps " + other.name);
+                }
+            }
+            this.placeholders.put(placeholder.name, placeholder);
+        }
+    }
+
+    /**
+     * @return the size of the serialized message, the same for every write
+     */
+    int getLength() {
+        return bytes.length;
+    }
+
+    /**
+     * @param substitutions placeholder name to its bytes, which must have the placeholder's length;
+     *                      placeholders without substitution keep their initial value
+     * @return the message to write, along with its serialized form
+     */
+    Filled fill(Map<String, byte[]> substitutions) throws FormatException {
+        if (substitutions.isEmpty()) {
+            return new Filled(message, bytes);
+        }
+
+        byte[] filledBytes = bytes.clone();
+        NdefRecord[] filled = records.clone();
+        byte[][] payloads = new byte[records.length][];
+        for (Map.Entry<String, byte[]> substitution : substitutions.entrySet()) {
+            Placeholder placeholder = placeholders.get(substitution.getKey());
+            if (placeholder == null) {
+                throw new FormatException("unknown placeholder " + substitution.getKey());
+            }
+            byte[] value = substitution.getValue();
+            if (value.length != placeholder.length) {
+                throw new FormatException("placeholder " + placeholder.name + " needs " + placeholder.length + " bytes");
+            }
+            byte[] payload = payloads[placeholder.record];
+            if (payload == null) {
+                payload = records[placeholder.record].getPayload().clone();
+                payloads[placeholder.record] = payload;
+            }
+            System.arraycopy(value, 0, payload, placeholder.offset - placeholder.payloadOffset, value.length);
+            System.arraycopy(value, 0, filledBytes, placeholder.offset, value.length);
+        }
+
+        for (int i = 0; i < records.length; i++) {
+            if (payloads[i] != null) {
+                NdefRecord record = records[i];
+                filled[i] = new NdefRecord(record.getTnf(), record.getType(), record.getId(), payloads[i]);
+            }
+        }
+        return new Filled(new NdefMessage(filled), filledBytes);
+    }
+}
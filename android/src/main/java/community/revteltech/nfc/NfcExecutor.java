@@ -0,0 +1,79 @@
+package community.revteltech.nfc;
+
+import android.util.Log;
+import com.facebook.react.bridge.Callback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded executor for tag I/O, so a slow tag doesn't stall
+ * the native modules queue (and every other module queued behind it).
+ * Tasks run in the order they are submitted.
+ */
+class NfcExecutor {
+    static String LOG_TAG = "NfcManager-executor";
+    static final int DEFAULT_MAX_QUEUED = 64;
+    static final String ERR_QUEUE_FULL = "too many pending nfc operations";
+
+    static class Task implements Runnable {
+        final Callback callback;
+        final Runnable runnable;
+
+        Task(Callback callback, Runnable runnable) {
+            this.callback = callback;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    NfcExecutor(int maxQueued) {
+        executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(maxQueued),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "NfcManager-io");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // don't keep an idle thread around when the app isn't using nfc
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue the task, the callback is invoked with ERR_QUEUE_FULL if it can't be accepted,
+     * or with the cancel reason if it's dropped by cancelPending before running.
+     */
+    void execute(Callback callback, Runnable runnable) {
+        try {
+            executor.execute(new Task(callback, runnable));
+        } catch (RejectedExecutionException ex) {
+            Log.w(LOG_TAG, "reject nfc task: " + ex);
+            callback.invoke(ERR_QUEUE_FULL);
+        }
+    }
+
+    /**
+     * Drop every task which hasn't started yet, the in-flight one (if any) is not affected.
+     */
+    void cancelPending(String reason) {
+        List<Runnable> dropped = new ArrayList<>();
+        executor.getQueue().drainTo(dropped);
+        for (Runnable runnable : dropped) {
+            ((Task) runnable).callback.invoke(reason);
+        }
+    }
+}
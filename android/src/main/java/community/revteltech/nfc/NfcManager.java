@@ -11,6 +11,7 @@ import android.os.Build;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import android.util.Base64;
 import android.util.Log;
 import android.provider.Settings;
 import com.facebook.react.bridge.*;
@@ -36,10 +37,12 @@ import android.nfc.tech.MifareUltralight;
 import android.os.Parcelable;
 import android.os.Bundle;
 
-import org.json.JSONObject;
-import org.json.JSONException;
-
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 class NfcManager extends ReactContextBaseJavaModule implements ActivityEventListener, LifecycleEventListener {
     private static final String LOG_TAG = "ReactNativeNfcManager";
@@ -48,14 +51,46 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
     private final Context context;
     private Boolean isForegroundEnabled = false;
     private Boolean isResumed = false;
-    private WriteNdefRequest writeNdefRequest = null;
-    private TagTechnologyRequest techRequest = null;
+    // claimed with getAndSet by the tag which writes it or by cancelNdefWrite, whichever comes first
+    private final AtomicReference<WriteNdefRequest> writeNdefRequest = new AtomicReference<>();
+    // the request calls (requestTechnology, cancelTechnologyRequest) don't take the session lock,
+    // which the tag I/O holds for the whole operation, the session state decides who gets it
+    private volatile TagTechnologyRequest techRequest = null;
+    private final AtomicReference<SessionState> sessionState = new AtomicReference<>(SessionState.IDLE);
+    private final SessionLock sessionLock = new SessionLock();
+    private volatile ScanLoopRequest scanLoop = null;
+    private final NfcExecutor nfcExecutor = new NfcExecutor(NfcExecutor.DEFAULT_MAX_QUEUED);
+    private final MifareKeyCache mifareKeyCache = new MifareKeyCache(MifareKeyCache.DEFAULT_MAX_ENTRIES);
+    private final NdefMessageCache ndefCache = new NdefMessageCache(NdefMessageCache.DEFAULT_MAX_ENTRIES);
+    private volatile String ndefCachePolicy = NdefMessageCache.POLICY_ALWAYS_FRESH;
+    // see registerNdefTemplate
+    private final Map<Integer, NdefTemplate> ndefTemplates = Collections.synchronizedMap(new HashMap<Integer, NdefTemplate>());
+    private int nextNdefTemplateHandle = 1;
+    private final NfcMetrics metrics = new NfcMetrics();
+    private final FrameTrace frameTrace = new FrameTrace();
+    private final TagDebouncer tagDebouncer = new TagDebouncer(TagDebouncer.DEFAULT_CAPACITY);
+    private final TagEventBatcher tagEventBatcher = new TagEventBatcher(new TagEventBatcher.Sink() {
+        @Override
+        public void emitBatch(WritableMap batch) {
+            sendEvent("NfcManagerDiscoverTagBatch", batch);
+        }
+    });
     private Tag tag = null;
-    private WritableMap bgTag = null;
+    private final BackgroundTagQueue bgTags;
+    // a single thread, so the background tags are queued (and sent) in order
+    private final ExecutorService bgTagExecutor = Executors.newSingleThreadExecutor();
+    // marks the launch intent once its tag is queued, start() runs again on every js reload and
+    // the activity keeps the same intent object when it is recreated
+    private static final String EXTRA_LAUNCH_TAG_QUEUED = "community.revteltech.nfc.LAUNCH_TAG_QUEUED";
     // Use NFC reader mode instead of listening to a dispatch
     private Boolean isReaderModeEnabled = false;
     private int readerModeFlags = 0;
     private int readerModeDelay = 0;
+    // how byte buffers are sent back to js, see setByteEncoding
+    private volatile String byteEncoding = BYTE_ENCODING_ARRAY;
+    private volatile boolean ndefDecoding = false;
+    private static final String BYTE_ENCODING_ARRAY = "array";
+    private static final String BYTE_ENCODING_BASE64 = "base64";
     private static final String ERR_CANCEL = "cancelled";
     private static final String ERR_NOT_REGISTERED = "you should requestTagEvent first";
     private static final String ERR_MULTI_REQ = "You can only issue one request at a time";
@@ -65,6 +100,27 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
     private static final String ERR_API_NOT_SUPPORT = "unsupported tag api";
     private static final String ERR_GET_ACTIVITY_FAIL = "fail to get current activity";
     private static final String ERR_NO_NFC_SUPPORT = "no nfc support";
+    private static final String ERR_INVALID_BYTE_ENCODING = "invalid byte encoding";
+    private static final String ERR_READER_MODE_REQUIRED = "reader mode is required";
+    private static final String ERR_NO_TECH_MATCH = "no requested tech available";
+    private static final String ERR_NO_SCAN_LOOP = "no scan loop running";
+    // per block / page status of the bulk writes
+    private static final String WRITE_STATUS_OK = "ok";
+    private static final String WRITE_STATUS_INVALID = "invalid";
+    private static final String WRITE_STATUS_AUTH_FAIL = "authFail";
+    private static final String WRITE_STATUS_WRITE_FAIL = "writeFail";
+    private static final String WRITE_STATUS_VERIFY_FAIL = "verifyFail";
+
+    /**
+     * Lifecycle of the tech request:
+     * IDLE -> ARMED (requestTechnology) -> CONNECTED (tag discovered) -> CLOSING (cancel / close) -> IDLE
+     */
+    enum SessionState {
+        IDLE,
+        ARMED,
+        CONNECTED,
+        CLOSING
+    }
 
     static class WriteNdefRequest {
         NdefMessage message;
@@ -80,9 +136,39 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
         }
     }
 
+    static class ScanLoopRequest {
+        static final String SCRIPT_NDEF = "ndef";
+        static final String SCRIPT_ULTRALIGHT_PAGES = "mifareUltralightPages";
+        static final String SCRIPT_TRANSCEIVE = "transceive";
+        static final String SCRIPT_ENCODE = "encode";
+        static final String VERIFY_READBACK = "readback";
+        static final String VERIFY_NONE = "none";
+
+        ArrayList<Object> techs;
+        String script;
+        int startPage;
+        int endPage;
+        List<byte[]> commands;
+        // encode script
+        NdefMessage encodeMessage;
+        byte[] encodeBytes;
+        boolean verify;
+        boolean format;
+        boolean lock;
+        int retries;
+        EncodingStats encodingStats;
+        volatile int tagCount = 0;
+
+        ScanLoopRequest(ArrayList<Object> techs, String script) {
+            this.techs = techs;
+            this.script = script;
+        }
+    }
+
     public NfcManager(ReactApplicationContext reactContext) {
         super(reactContext);
         context = reactContext;
+        bgTags = new BackgroundTagQueue(new File(reactContext.getFilesDir(), "nfc-background-tags.jsonl"));
         reactContext.addActivityEventListener(this);
         reactContext.addLifecycleEventListener(this);
         Log.d(LOG_TAG, "NfcManager created");
@@ -103,201 +189,541 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
         constants.put("MIFARE_ULTRALIGHT_TYPE", MifareUltralight.TYPE_ULTRALIGHT);
         constants.put("MIFARE_ULTRALIGHT_TYPE_C", MifareUltralight.TYPE_ULTRALIGHT_C);
         constants.put("MIFARE_ULTRALIGHT_TYPE_UNKNOWN", MifareUltralight.TYPE_UNKNOWN);
+        constants.put("BYTE_ENCODING_ARRAY", BYTE_ENCODING_ARRAY);
+        constants.put("BYTE_ENCODING_BASE64", BYTE_ENCODING_BASE64);
 
         return constants;
     }
 
     private boolean hasPendingRequest() {
-        return writeNdefRequest != null || techRequest != null;
+        return writeNdefRequest.get() != null || techRequest != null || scanLoop != null;
+    }
+
+    /**
+     * Record how long the task runs (not counting the time it waits in the executor queue),
+     * under the operation name and the tech which is connected when it finishes.
+     */
+    private Runnable timed(final String operation, final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    // a frame still pending here failed in a way the task didn't report to us
+                    frameTrace.fail("incomplete");
+                    TagTechnologyRequest request = techRequest;
+                    metrics.recordLatency(operation, request != null ? request.getTechType() : null, System.nanoTime() - start);
+                }
+            }
+        };
     }
 
     @ReactMethod
     public void cancelTechnologyRequest(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                techRequest.close();
-                try {
-                    techRequest.invokePendingCallbackWithError(ERR_CANCEL);
-                } catch (RuntimeException ex) {
-                    // the pending callback might already been invoked when there is an ongoing
-                    // connected tag, bypass this case explicitly
-                }
+        // anything still queued for the cancelled request should not reach the next tag
+        nfcExecutor.cancelPending(ERR_CANCEL);
+
+        // closing the tech handle makes the in-flight I/O (which holds the session lock) fail right away,
+        // the session lock isn't taken so cancel never waits for it
+        TagTechnologyRequest request = techRequest;
+        if (request != null) {
+            sessionState.set(SessionState.CLOSING);
+            request.close();
+            try {
+                request.invokePendingCallbackWithError(ERR_CANCEL);
+            } catch (RuntimeException ex) {
+                // the pending callback might already been invoked when there is an ongoing
+                // connected tag, bypass this case explicitly
+            }
+            if (techRequest == request) {
                 techRequest = null;
             }
-            callback.invoke();
+            sessionState.compareAndSet(SessionState.CLOSING, SessionState.IDLE);
         }
+        callback.invoke();
     }
 
     @ReactMethod
     public void requestTechnology(ReadableArray techs, Callback callback) {
-        synchronized(this) {
-            if (!isForegroundEnabled) {
-                callback.invoke(ERR_NOT_REGISTERED);
-                return;
+        if (!isForegroundEnabled) {
+            callback.invoke(ERR_NOT_REGISTERED);
+            return;
+        }
+
+        if (hasPendingRequest() || !sessionState.compareAndSet(SessionState.IDLE, SessionState.ARMED)) {
+            metrics.increment(NfcMetrics.COUNTER_MULTI_REQ);
+            callback.invoke(ERR_MULTI_REQ);
+        } else {
+            techRequest = new TagTechnologyRequest(techs.toArrayList(), callback);
+        }
+    }
+
+    @ReactMethod
+    public void closeTechnology(final Callback callback) {
+        nfcExecutor.execute(callback, timed("closeTechnology", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        sessionState.set(SessionState.CLOSING);
+                        techRequest.close();
+                        techRequest = null;
+                    }
+                    sessionState.set(SessionState.IDLE);
+                    callback.invoke();
+                } finally {
+                    sessionLock.unlock();
+                }
             }
+        }));
+    }
 
-            if (hasPendingRequest()) {
-                callback.invoke(ERR_MULTI_REQ);
-            } else {
-                techRequest = new TagTechnologyRequest(techs.toArrayList(), callback);
+    @ReactMethod
+    public void getTag(final Callback callback) {
+        nfcExecutor.execute(callback, timed("getTag", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        Tag tag = techRequest.getTagHandle();
+                        if (tag != null) {
+                            WritableMap parsed = tag2React(tag);
+                            if (Arrays.asList(tag.getTechList()).contains(Ndef.class.getName())) {
+                                try {
+                                    Ndef ndef = Ndef.get(tag);
+                                    parsed = ndef2React(ndef, new NdefMessage[]{ndef.getCachedNdefMessage()});
+                                } catch (Exception ex) {
+                                    Log.d(LOG_TAG, ex.toString());
+                                }
+                            }
+                            callback.invoke(null, parsed);
+                        } else {
+                            callback.invoke(ERR_NO_REFERENCE);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
             }
-        }
+        }));
     }
 
     @ReactMethod
-    public void closeTechnology(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                techRequest.close();
-                techRequest = null;
+    public void getCachedNdefMessage(final Callback callback) {
+        nfcExecutor.execute(callback, timed("getCachedNdefMessage", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            Ndef ndef = Ndef.get(techRequest.getTagHandle());
+                            WritableMap parsed = ndef2React(ndef, new NdefMessage[] { ndef.getCachedNdefMessage() });
+                            callback.invoke(null, parsed);
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
             }
-            callback.invoke();
-        }
+        }));
     }
 
     @ReactMethod
-    public void getTag(Callback callback) {
-        synchronized (this) {
-            if (techRequest != null) {
-                Tag tag = techRequest.getTagHandle();
-                if (tag != null) {
-                    WritableMap parsed = tag2React(tag);
-                    if (Arrays.asList(tag.getTechList()).contains(Ndef.class.getName())) {
+    public void getNdefMessage(final Callback callback) {
+        nfcExecutor.execute(callback, timed("getNdefMessage", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
                         try {
-                            Ndef ndef = Ndef.get(tag);
-                            parsed = ndef2React(ndef, new NdefMessage[]{ndef.getCachedNdefMessage()});
+                            Tag tagHandle = techRequest.getTagHandle();
+                            Ndef ndef = Ndef.get(tagHandle);
+                            NdefMessageCache.Entry cached = null;
+                            if (NdefMessageCache.POLICY_CACHE_FIRST.equals(ndefCachePolicy)) {
+                                cached = ndefCache.lookup(tagHandle.getId(), ndefCapability(ndef));
+                            }
+
+                            NdefMessage message;
+                            if (cached != null) {
+                                message = cached.message;
+                            } else {
+                                frameTrace.begin(FrameTrace.OP_NDEF_READ, "Ndef", null);
+                                message = ndef.getNdefMessage();
+                                frameTrace.end(message != null && frameTrace.isEnabled() ? message.toByteArray() : FrameTrace.EMPTY_RESPONSE);
+                                ndefCache.put(tagHandle.getId(), ndefCapability(ndef), message);
+                            }
+                            WritableMap parsed = ndef2React(null, new NdefMessage[] { message });
+                            callback.invoke(null, parsed);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
                         } catch (Exception ex) {
+                            frameTrace.fail(ex);
                             Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
                         }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
                     }
-                    callback.invoke(null, parsed);
-                } else {
-                    callback.invoke(ERR_NO_REFERENCE);
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
-        }
+        }));
     }
 
     @ReactMethod
-    public void getCachedNdefMessage(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
+    public void getNdefStatus(final Callback callback) {
+        nfcExecutor.execute(callback, timed("getNdefStatus", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
                 try {
-                    Ndef ndef = Ndef.get(techRequest.getTagHandle());
-                    WritableMap parsed = ndef2React(ndef, new NdefMessage[] { ndef.getCachedNdefMessage() });
-                    callback.invoke(null, parsed);
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, ex.toString());
-                    callback.invoke(ex.toString());
+                    if (techRequest != null) {
+                        WritableMap writableMap = Arguments.createMap();
+                        try {
+                            Ndef ndef = Ndef.get(techRequest.getTagHandle());
+                            int maxSize = ndef.getMaxSize();
+                            boolean isWritable = ndef.isWritable();
+                            boolean canMakeReadOnly = ndef.canMakeReadOnly();
+                            writableMap.putInt("maxSize", maxSize);
+                            writableMap.putBoolean("isWritable", isWritable);
+                            writableMap.putBoolean("canMakeReadOnly", canMakeReadOnly);
+                            callback.invoke(null, writableMap);
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
-        }
+        }));
     }
 
     @ReactMethod
-    public void getNdefMessage(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
+    public void writeNdefMessage(final Dynamic rnArray, final ReadableMap options, final Callback callback) {
+        nfcExecutor.execute(callback, timed("writeNdefMessage", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
                 try {
-                    Ndef ndef = Ndef.get(techRequest.getTagHandle());
-                    WritableMap parsed = ndef2React(null, new NdefMessage[] { ndef.getNdefMessage() });
-                    callback.invoke(null, parsed);
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, ex.toString());
-                    callback.invoke(ex.toString());
+                    boolean reconnectAfterWrite = options.getBoolean("reconnectAfterWrite");
+                    boolean minimalWrite = options.hasKey("minimalWrite") && options.getBoolean("minimalWrite");
+            
+                    if (techRequest != null) {
+                        try {
+                            byte[] bytes = rnToBytes(rnArray);
+                            writeNdefToTech(new NdefMessage(bytes), bytes, reconnectAfterWrite, minimalWrite, callback);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
-        }
+        }));
     }
 
+    /**
+     * Same as writeNdefMessage, but the message is built natively from record descriptions
+     * (see NdefCodec.buildRecord), so js doesn't need to encode it with ndef-lib first.
+     */
     @ReactMethod
-    public void getNdefStatus(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                WritableMap writableMap = Arguments.createMap();
+    public void writeNdefRecords(final ReadableArray records, final ReadableMap options, final Callback callback) {
+        nfcExecutor.execute(callback, timed("writeNdefRecords", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
                 try {
-                    Ndef ndef = Ndef.get(techRequest.getTagHandle());
-                    int maxSize = ndef.getMaxSize();
-                    boolean isWritable = ndef.isWritable();
-                    boolean canMakeReadOnly = ndef.canMakeReadOnly();
-                    writableMap.putInt("maxSize", maxSize);
-                    writableMap.putBoolean("isWritable", isWritable);
-                    writableMap.putBoolean("canMakeReadOnly", canMakeReadOnly);
-                    callback.invoke(null, writableMap);
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, ex.toString());
-                    callback.invoke(ex.toString());
+                    boolean reconnectAfterWrite = options.getBoolean("reconnectAfterWrite");
+                    boolean minimalWrite = options.hasKey("minimalWrite") && options.getBoolean("minimalWrite");
+
+                    if (techRequest != null) {
+                        try {
+                            writeNdefToTech(NdefCodec.buildMessage(records), null, reconnectAfterWrite, minimalWrite, callback);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
+        }));
+    }
+
+    /**
+     * Parse the message once and keep it natively, writeNdefTemplate then only sends the handle and
+     * the placeholder values over the bridge.
+     *
+     * @param placeholders [{name, offset, length}], offset into rnArray, inside a record payload
+     */
+    @ReactMethod
+    public void registerNdefTemplate(Dynamic rnArray, ReadableArray placeholders, Callback callback) {
+        try {
+            NdefTemplate.Placeholder[] parsed = new NdefTemplate.Placeholder[placeholders.size()];
+            for (int i = 0; i < placeholders.size(); i++) {
+                ReadableMap placeholder = placeholders.getMap(i);
+                parsed[i] = new NdefTemplate.Placeholder(
+                        placeholder.getString("name"),
+                        placeholder.getInt("offset"),
+                        placeholder.getInt("length"));
+            }
+            NdefTemplate template = new NdefTemplate(rnToBytes(rnArray), parsed);
+            int handle;
+            synchronized (ndefTemplates) {
+                handle = nextNdefTemplateHandle++;
+                ndefTemplates.put(handle, template);
+            }
+            callback.invoke(null, handle);
+        } catch (Exception ex) {
+            callback.invoke("registerNdefTemplate fail: " + ex);
         }
     }
 
     @ReactMethod
-    public void writeNdefMessage(ReadableArray rnArray, ReadableMap options, Callback callback) {
-        synchronized(this) {
-            boolean reconnectAfterWrite = options.getBoolean("reconnectAfterWrite");
-            
-            if (techRequest != null) {
+    public void unregisterNdefTemplate(int handle, Callback callback) {
+        ndefTemplates.remove(handle);
+        callback.invoke();
+    }
+
+    /**
+     * @param substitutions placeholder name to its bytes, of exactly the placeholder's length
+     */
+    @ReactMethod
+    public void writeNdefTemplate(final int handle, final ReadableMap substitutions, final ReadableMap options, final Callback callback) {
+        nfcExecutor.execute(callback, timed("writeNdefTemplate", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
                 try {
-                    Ndef ndef = (Ndef)techRequest.getTechHandle();
-                    if (ndef == null) {
-                        callback.invoke(ERR_API_NOT_SUPPORT);
-                    } else {
-                        byte[] bytes = rnArrayToBytes(rnArray);
-                        ndef.writeNdefMessage(new NdefMessage(bytes));
-                        if (reconnectAfterWrite) {
-                            ndef.close();
-                            //reconnection is needed in order to be able to read the written ndef 
-                            ndef.connect();
+                    boolean reconnectAfterWrite = options.getBoolean("reconnectAfterWrite");
+                    boolean minimalWrite = options.hasKey("minimalWrite") && options.getBoolean("minimalWrite");
+
+                    if (techRequest != null) {
+                        try {
+                            NdefTemplate template = ndefTemplates.get(handle);
+                            if (template == null) {
+                                callback.invoke("writeNdefTemplate fail: unknown template " + handle);
+                                return;
+                            }
+                            Map<String, byte[]> values = new HashMap<>();
+                            ReadableMapKeySetIterator it = substitutions.keySetIterator();
+                            while (it.hasNextKey()) {
+                                String name = it.nextKey();
+                                values.put(name, rnToBytes(substitutions.getDynamic(name)));
+                            }
+                            NdefTemplate.Filled filled = template.fill(values);
+                            writeNdefToTech(filled.message, filled.bytes, reconnectAfterWrite, minimalWrite, callback);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
                         }
-                        callback.invoke();
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
                     }
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, ex.toString());
-                    callback.invoke(ex.toString());
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
+        }));
+    }
+
+    /**
+     * @param bytes the message serialized when the caller already has it, or null
+     */
+    private void writeNdefToTech(NdefMessage message, byte[] bytes, boolean reconnectAfterWrite, boolean minimalWrite, Callback callback) throws Exception {
+        if (minimalWrite && writeNdefMinimal(message, bytes, callback)) {
+            return;
+        }
+
+        Ndef ndef = (Ndef)techRequest.getTechHandle();
+        if (ndef == null) {
+            callback.invoke(ERR_API_NOT_SUPPORT);
+            return;
+        }
+        if (bytes != null && ndef.getMaxSize() < bytes.length) {
+            callback.invoke("tag size is not enough");
+            return;
+        }
+        frameTrace.begin(FrameTrace.OP_NDEF_WRITE, "Ndef", frameTrace.isEnabled() ? (bytes != null ? bytes : message.toByteArray()) : null);
+        try {
+            ndef.writeNdefMessage(message);
+        } catch (Exception ex) {
+            // a failed write may have changed part of the message
+            ndefCache.invalidate(ndef.getTag().getId());
+            throw ex;
+        }
+        frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+        rememberNdefMessage(ndef.getTag(), message);
+        if (reconnectAfterWrite) {
+            ndef.close();
+            //reconnection is needed in order to be able to read the written ndef 
+            ndef.connect();
+        }
+        callback.invoke();
+    }
+
+    /**
+     * Write only the pages of a Type 2 tag which differ from the current content, see Type2Ndef.
+     * With the Ndef tech connected it switches to MifareUltralight for the update and back.
+     *
+     * @return false if the tag isn't Type 2, the caller then does a regular write
+     */
+    private boolean writeNdefMinimal(NdefMessage message, byte[] bytes, Callback callback) throws Exception {
+        TagTechnology techHandle = techRequest.getTechHandle();
+        String techType = techRequest.getTechType();
+        Ndef ndef = null;
+        TagTechnology type2Handle;
+        if (techType.equals("MifareUltralight") || techType.equals("NfcA")) {
+            type2Handle = techHandle;
+        } else if (techType.equals("Ndef") && Ndef.NFC_FORUM_TYPE_2.equals(((Ndef) techHandle).getType())) {
+            // only one tech can be connected at a time
+            ndef = (Ndef) techHandle;
+            type2Handle = MifareUltralight.get(ndef.getTag());
+            if (type2Handle == null) {
+                return false;
+            }
+            techType = "MifareUltralight";
+        } else {
+            return false;
+        }
+
+        try {
+            if (ndef != null) {
+                ndef.close();
+                type2Handle.connect();
+            }
+            TagTransport transport = frameTrace.wrap(TechTransport.wrap(techType, type2Handle));
+            byte[] cc = UltralightUtil.readRange(transport, Type2Ndef.CC_PAGE, Type2Ndef.CC_PAGE);
+            int dataPages = Type2Ndef.getDataAreaSize(cc) / UltralightUtil.PAGE_SIZE;
+            byte[] data = ultralightReadRange(transport, type2Handle, Type2Ndef.DATA_START_PAGE, Type2Ndef.DATA_START_PAGE + dataPages - 1);
+
+            Type2Ndef.Plan plan = Type2Ndef.plan(data, bytes != null ? bytes : message.toByteArray());
+            byte[] command = new byte[2 + UltralightUtil.PAGE_SIZE];
+            ndefCache.invalidate(type2Handle.getTag().getId());
+            for (Type2Ndef.PageWrite write : plan.writes) {
+                UltralightUtil.writePage(transport, command, write.page, write.data, 0);
+            }
+            rememberNdefMessage(type2Handle.getTag(), message);
+
+            WritableMap result = Arguments.createMap();
+            result.putInt("pagesWritten", plan.writes.size());
+            result.putInt("fullWritePages", plan.fullWritePages);
+            callback.invoke(null, result);
+        } finally {
+            if (ndef != null) {
+                restoreTech(type2Handle, ndef);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Switch back to the tech the caller requested after a temporary one. Failures are only logged,
+     * so they don't replace the exception (or the result) of the operation in between.
+     */
+    private static void restoreTech(TagTechnology temporary, TagTechnology requested) {
+        try {
+            temporary.close();
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "restoreTech close: " + ex);
+        }
+        try {
+            if (!requested.isConnected()) {
+                requested.connect();
+            }
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "restoreTech connect: " + ex);
         }
     }
 
     @ReactMethod
-    public void formatNdef(ReadableArray rnArray, ReadableMap options, Callback callback) {
-        boolean readOnly = options.getBoolean("readOnly");
+    public void formatNdef(final Dynamic rnArray, final ReadableMap options, final Callback callback) {
+        nfcExecutor.execute(callback, timed("formatNdef", new Runnable() {
+            @Override
+            public void run() {
+                boolean readOnly = options.getBoolean("readOnly");
 
-        synchronized(this) {
-            if (techRequest != null) {
+                sessionLock.lock();
                 try {
-                    NdefFormatable ndef = (NdefFormatable)techRequest.getTechHandle();
-                    if (ndef == null) {
-                        callback.invoke(ERR_API_NOT_SUPPORT);
-                    } else {
-                        byte[] bytes = rnArrayToBytes(rnArray);
-                        NdefMessage msg = new NdefMessage(bytes);
-                        if (readOnly) {
-                            ndef.formatReadOnly(msg);
-                        } else {
-                            ndef.format(msg);
+                    if (techRequest != null) {
+                        try {
+                            NdefFormatable ndef = (NdefFormatable)techRequest.getTechHandle();
+                            if (ndef == null) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                            } else {
+                                byte[] bytes = rnToBytes(rnArray);
+                                NdefMessage msg = new NdefMessage(bytes);
+                                // the tag has no capability container to key the message by yet
+                                ndefCache.invalidate(ndef.getTag().getId());
+                                if (readOnly) {
+                                    ndef.formatReadOnly(msg);
+                                } else {
+                                    ndef.format(msg);
+                                }
+                                callback.invoke();
+                            }
+                        } catch (TagLostException ex) {
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
                         }
-                        callback.invoke();
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
                     }
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, ex.toString());
-                    callback.invoke(ex.toString());
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
-        }
+        }));
     }
 
     private void mifareClassicAuthenticate(char type, int sector, ReadableArray key, Callback callback) {
@@ -320,22 +746,25 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
                     return;
                 }
 
-                boolean result;
-                if (type == 'A') {
-                    result = mifareTag.authenticateSectorWithKeyA(sector, rnArrayToBytes(key));
-                } else {
-                    result = mifareTag.authenticateSectorWithKeyB(sector, rnArrayToBytes(key));
-                }
+                byte[] keyBytes = Util.rnArrayToBytes(key);
+                boolean result = MifareUtil.authenticate(mifareTag, sector, type, keyBytes, frameTrace);
 
                 if (!result) {
+                    metrics.increment(NfcMetrics.COUNTER_AUTH_FAIL);
                     callback.invoke("mifareClassicAuthenticate fail: AUTH_FAIL");
                     return;
                 }
 
+                // keep it for mifareClassicAuthenticateAuto, this doesn't count as a cache lookup
+                mifareKeyCache.remember(mifareTag.getTag().getId(), sector, new MifareKeyCache.Entry(type, keyBytes));
+
                 callback.invoke(null, true);
             } catch (TagLostException ex) {
+                frameTrace.fail(ex);
+                metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
                 callback.invoke("mifareClassicAuthenticate fail: TAG_LOST");
             } catch (Exception ex) {
+                frameTrace.fail(ex);
                 callback.invoke("mifareClassicAuthenticate fail: " + ex);
             }
         } else {
@@ -344,613 +773,2035 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
     }
 
     @ReactMethod
-    public void mifareClassicAuthenticateA(int sector, ReadableArray key, Callback callback) {
-        synchronized(this) {
-            mifareClassicAuthenticate('A', sector, key, callback);
-        }
+    public void mifareClassicAuthenticateA(final int sector, final ReadableArray key, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicAuthenticateA", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    mifareClassicAuthenticate('A', sector, key, callback);
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
     }
 
     @ReactMethod
-    public void mifareClassicAuthenticateB(int sector, ReadableArray key, Callback callback) {
-        synchronized(this) {
-            mifareClassicAuthenticate('B', sector, key, callback);
-        }
+    public void mifareClassicAuthenticateB(final int sector, final ReadableArray key, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicAuthenticateB", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    mifareClassicAuthenticate('B', sector, key, callback);
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
     }
 
     @ReactMethod
-    public void mifareClassicGetBlockCountInSector(int sectorIndex, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
+    public void mifareClassicAuthenticateAuto(final int sector, final ReadableArray candidateKeys, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicAuthenticateAuto", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
                 try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicGetBlockCountInSector fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (sectorIndex >= mifareTag.getSectorCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicGetBlockCountInSector fail: invalid sector %d (max %d)", sectorIndex, mifareTag.getSectorCount());
-                        callback.invoke(msg);
-                        return;
-                    }
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicAuthenticateAuto fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (sector >= mifareTag.getSectorCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicAuthenticateAuto fail: invalid sector %d (max %d)", sector, mifareTag.getSectorCount());
+                                callback.invoke(msg);
+                                return;
+                            }
 
-                    callback.invoke(null, mifareTag.getBlockCountInSector(sectorIndex));
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicGetBlockCountInSector fail: " + ex);
+                            List<byte[]> keys = new ArrayList<>();
+                            for (int i = 0; i < candidateKeys.size(); i++) {
+                                byte[] key = rnToBytes(candidateKeys, i);
+                                if (key.length != 6) {
+                                    @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicAuthenticateAuto fail: invalid key (needs length 6 but has %d characters)", key.length);
+                                    callback.invoke(msg);
+                                    return;
+                                }
+                                keys.add(key);
+                            }
+
+                            byte[] uid = mifareTag.getTag().getId();
+                            MifareKeyCache.Entry hint = mifareKeyCache.lookup(uid, sector);
+                            MifareKeyCache.Entry unlockedBy = MifareUtil.authenticateWithCandidates(mifareTag, sector, keys, hint, frameTrace);
+                            mifareKeyCache.record(uid, sector, hint, unlockedBy);
+                            if (unlockedBy == null) {
+                                metrics.increment(NfcMetrics.COUNTER_AUTH_FAIL);
+                                callback.invoke("mifareClassicAuthenticateAuto fail: AUTH_FAIL");
+                                return;
+                            }
+
+                            WritableMap result = Arguments.createMap();
+                            result.putString("keyType", String.valueOf(unlockedBy.type));
+                            putBytes(result, "key", unlockedBy.key);
+                            result.putBoolean("cached", unlockedBy == hint);
+                            callback.invoke(null, result);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicAuthenticateAuto fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicAuthenticateAuto fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
-        }
+        }));
     }
 
     @ReactMethod
-    public void mifareClassicGetSectorCount(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicGetSectorCount fail: TYPE_UNKNOWN");
-                        return;
-                    }
+    public void getMifareKeyCacheStats(Callback callback) {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("hits", mifareKeyCache.getHits());
+        stats.putDouble("misses", mifareKeyCache.getMisses());
+        stats.putInt("size", mifareKeyCache.size());
+        callback.invoke(null, stats);
+    }
 
-                    callback.invoke(null, mifareTag.getSectorCount());
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicGetSectorCount fail: " + ex);
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
+    @ReactMethod
+    public void clearMifareKeyCache(Callback callback) {
+        mifareKeyCache.clear();
+        callback.invoke();
+    }
+
+    /**
+     * alwaysFresh (default) reads getNdefMessage over the air, cacheFirst returns the last known
+     * message of the tag (from discovery, a read or a write) when there is one
+     */
+    @ReactMethod
+    public void setNdefCachePolicy(String policy, Callback callback) {
+        if (!NdefMessageCache.POLICY_ALWAYS_FRESH.equals(policy) && !NdefMessageCache.POLICY_CACHE_FIRST.equals(policy)) {
+            callback.invoke("setNdefCachePolicy fail: invalid policy " + policy);
+            return;
         }
+        ndefCachePolicy = policy;
+        callback.invoke();
     }
 
     @ReactMethod
-    public void mifareClassicSectorToBlock(int sectorIndex, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicSectorToBlock fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (sectorIndex >= mifareTag.getSectorCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicSectorToBlock fail: invalid sector %d (max %d)", sectorIndex, mifareTag.getSectorCount());
-                        callback.invoke(msg);
-                        return;
-                    }
+    public void getNdefCacheStats(Callback callback) {
+        WritableMap stats = Arguments.createMap();
+        long hits = ndefCache.getHits();
+        long misses = ndefCache.getMisses();
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putDouble("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        stats.putInt("size", ndefCache.size());
+        callback.invoke(null, stats);
+    }
 
-                    callback.invoke(null, mifareTag.sectorToBlock(sectorIndex));
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicSectorToBlock fail: " + ex);
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
+    @ReactMethod
+    public void clearNdefCache(Callback callback) {
+        ndefCache.clear();
+        callback.invoke();
+    }
+
+    private static String ndefCapability(Ndef ndef) {
+        return NdefMessageCache.capability(ndef.getType(), ndef.getMaxSize(), ndef.isWritable());
+    }
+
+    /**
+     * The message the platform read while discovering the tag, no I/O. Not cached when the
+     * platform skipped the NDEF check (FLAG_READER_SKIP_NDEF_CHECK), the message is then unknown.
+     */
+    private void rememberDiscoveredNdef(Tag tag) {
+        Ndef ndef = Ndef.get(tag);
+        if (ndef != null && ndef.getCachedNdefMessage() != null) {
+            ndefCache.put(tag.getId(), ndefCapability(ndef), ndef.getCachedNdefMessage());
+        }
+    }
+
+    private void rememberNdefMessage(Tag tag, NdefMessage message) {
+        Ndef ndef = Ndef.get(tag);
+        if (ndef != null) {
+            ndefCache.put(tag.getId(), ndefCapability(ndef), message);
+        } else {
+            ndefCache.invalidate(tag.getId());
         }
     }
 
     @ReactMethod
-    public void mifareClassicReadBlock(int blockIndex, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
+    public void mifareClassicReadCard(final ReadableArray keys, @Nullable final ReadableArray sectors, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicReadCard", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
                 try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicReadBlock fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (blockIndex >= mifareTag.getBlockCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicReadBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
-                        callback.invoke(msg);
-                        return;
-                    }
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicReadCard fail: TYPE_UNKNOWN");
+                                return;
+                            }
 
-                    byte[] buffer = mifareTag.readBlock(blockIndex);
+                            List<byte[]> candidateKeys = new ArrayList<>();
+                            for (int i = 0; i < keys.size(); i++) {
+                                byte[] key = rnToBytes(keys, i);
+                                if (key.length != 6) {
+                                    @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicReadCard fail: invalid key (needs length 6 but has %d characters)", key.length);
+                                    callback.invoke(msg);
+                                    return;
+                                }
+                                candidateKeys.add(key);
+                            }
 
-                    WritableArray result = bytesToRnArray(buffer);
-                    callback.invoke(null, result);
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareClassicReadBlock fail: TAG_LOST");
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicReadBlock fail: " + ex);
+                            int sectorCount = sectors != null ? sectors.size() : mifareTag.getSectorCount();
+                            for (int i = 0; sectors != null && i < sectorCount; i++) {
+                                int sector = sectors.getInt(i);
+                                if (sector < 0 || sector >= mifareTag.getSectorCount()) {
+                                    // Check if in range
+                                    @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicReadCard fail: invalid sector %d (max %d)", sector, mifareTag.getSectorCount());
+                                    callback.invoke(msg);
+                                    return;
+                                }
+                            }
+
+                            WritableArray sectorResults = Arguments.createArray();
+                            WritableArray failedSectors = Arguments.createArray();
+                            for (int i = 0; i < sectorCount; i++) {
+                                int sector = sectors != null ? sectors.getInt(i) : i;
+                                byte[] uid = mifareTag.getTag().getId();
+                                MifareKeyCache.Entry hint = mifareKeyCache.lookup(uid, sector);
+                                MifareKeyCache.Entry unlockedBy = MifareUtil.authenticateWithCandidates(mifareTag, sector, candidateKeys, hint, frameTrace);
+                                mifareKeyCache.record(uid, sector, hint, unlockedBy);
+                                if (unlockedBy == null) {
+                                    metrics.increment(NfcMetrics.COUNTER_AUTH_FAIL);
+                                    failedSectors.pushInt(sector);
+                                    continue;
+                                }
+
+                                int blocks = mifareTag.getBlockCountInSector(sector);
+                                int firstBlock = mifareTag.sectorToBlock(sector);
+                                byte[] data = new byte[blocks * MifareClassic.BLOCK_SIZE];
+                                WritableArray unreadableBlocks = Arguments.createArray();
+                                for (int b = 0; b < blocks; b++) {
+                                    try {
+                                        frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_READ, "MifareClassic", 0x30, firstBlock + b, null);
+                                        byte[] buffer = mifareTag.readBlock(firstBlock + b);
+                                        frameTrace.end(buffer);
+                                        System.arraycopy(buffer, 0, data, b * MifareClassic.BLOCK_SIZE, MifareClassic.BLOCK_SIZE);
+                                    } catch (TagLostException ex) {
+                                        frameTrace.fail(ex);
+                                        throw ex;
+                                    } catch (IOException ex) {
+                                        frameTrace.fail(ex);
+                                        // the access conditions deny this block, the card drops the authentication
+                                        // after a failed read so we need to authenticate again for the remaining blocks
+                                        unreadableBlocks.pushInt(firstBlock + b);
+                                        MifareUtil.authenticate(mifareTag, sector, unlockedBy.type, unlockedBy.key, frameTrace);
+                                    }
+                                }
+
+                                WritableMap sectorResult = Arguments.createMap();
+                                sectorResult.putInt("sector", sector);
+                                sectorResult.putString("keyType", String.valueOf(unlockedBy.type));
+                                putBytes(sectorResult, "key", unlockedBy.key);
+                                putBytes(sectorResult, "data", data);
+                                sectorResult.putArray("unreadableBlocks", unreadableBlocks);
+                                sectorResults.pushMap(sectorResult);
+                            }
+
+                            WritableMap result = Arguments.createMap();
+                            result.putArray("sectors", sectorResults);
+                            result.putArray("failedSectors", failedSectors);
+                            callback.invoke(null, result);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicReadCard fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicReadCard fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
-        }
+        }));
     }
 
     @ReactMethod
-    public void mifareClassicReadSector(int sectorIndex, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
+    public void mifareClassicGetBlockCountInSector(final int sectorIndex, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicGetBlockCountInSector", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
                 try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicReadSector fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (sectorIndex >= mifareTag.getSectorCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicReadSector fail: invalid sector %d (max %d)", sectorIndex, mifareTag.getSectorCount());
-                        callback.invoke(msg);
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicGetBlockCountInSector fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (sectorIndex >= mifareTag.getSectorCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicGetBlockCountInSector fail: invalid sector %d (max %d)", sectorIndex, mifareTag.getSectorCount());
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            callback.invoke(null, mifareTag.getBlockCountInSector(sectorIndex));
+                        } catch (Exception ex) {
+                            callback.invoke("mifareClassicGetBlockCountInSector fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareClassicGetSectorCount(final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicGetSectorCount", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicGetSectorCount fail: TYPE_UNKNOWN");
+                                return;
+                            }
+
+                            callback.invoke(null, mifareTag.getSectorCount());
+                        } catch (Exception ex) {
+                            callback.invoke("mifareClassicGetSectorCount fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareClassicSectorToBlock(final int sectorIndex, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicSectorToBlock", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicSectorToBlock fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (sectorIndex >= mifareTag.getSectorCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicSectorToBlock fail: invalid sector %d (max %d)", sectorIndex, mifareTag.getSectorCount());
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            callback.invoke(null, mifareTag.sectorToBlock(sectorIndex));
+                        } catch (Exception ex) {
+                            callback.invoke("mifareClassicSectorToBlock fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareClassicReadBlock(final int blockIndex, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicReadBlock", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicReadBlock fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (blockIndex >= mifareTag.getBlockCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicReadBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_READ, "MifareClassic", 0x30, blockIndex, null);
+                            byte[] buffer = mifareTag.readBlock(blockIndex);
+                            frameTrace.end(buffer);
+
+                            callback.invoke(null, bytesToRn(buffer));
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicReadBlock fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicReadBlock fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareClassicReadSector(final int sectorIndex, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicReadSector", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicReadSector fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (sectorIndex >= mifareTag.getSectorCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicReadSector fail: invalid sector %d (max %d)", sectorIndex, mifareTag.getSectorCount());
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            int blocks = mifareTag.getBlockCountInSector(sectorIndex);
+                            int firstBlock = mifareTag.sectorToBlock(sectorIndex);
+                            byte[] result = new byte[blocks * MifareClassic.BLOCK_SIZE];
+                            for (int i = 0; i < blocks; i++) {
+                                frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_READ, "MifareClassic", 0x30, firstBlock + i, null);
+                                byte[] buffer = mifareTag.readBlock(firstBlock + i);
+                                frameTrace.end(buffer);
+                                System.arraycopy(buffer, 0, result, i * MifareClassic.BLOCK_SIZE, MifareClassic.BLOCK_SIZE);
+                            }
+
+                            callback.invoke(null, bytesToRn(result));
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicReadSector fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicReadSector fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareClassicWriteBlock(final int blockIndex, final Dynamic block, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicWriteBlock", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            byte[] buffer = rnToBytes(block);
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicWriteBlock fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (blockIndex >= mifareTag.getBlockCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicWriteBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
+                                callback.invoke(msg);
+                                return;
+                            } else if (buffer.length != MifareClassic.BLOCK_SIZE) {
+                                // Wrong block count
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicWriteBlock fail: invalid block size %d (should be %d)", buffer.length, MifareClassic.BLOCK_SIZE);
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            ndefCache.invalidate(mifareTag.getTag().getId());
+                            frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_WRITE, "MifareClassic", 0xA0, blockIndex, buffer);
+                            mifareTag.writeBlock(blockIndex, buffer);
+                            frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+
+                            callback.invoke(null, true);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicWriteBlock fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicWriteBlock fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Write several blocks in one call, keyed by block index. With options.keys each sector is
+     * authenticated once (through the key cache) before its first block, otherwise the blocks
+     * have to be in the sector authenticated already. With options.verify each block is read back
+     * and compared, except the sector trailers whose keys always read back masked.
+     * A block which fails doesn't stop the others, the status of each is reported.
+     */
+    @ReactMethod
+    public void mifareClassicWriteBlocks(final ReadableMap blocks, final ReadableMap options, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicWriteBlocks", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicWriteBlocks fail: TYPE_UNKNOWN");
+                                return;
+                            }
+                            boolean verify = options.hasKey("verify") && options.getBoolean("verify");
+                            List<byte[]> candidateKeys = null;
+                            if (options.hasKey("keys")) {
+                                ReadableArray keys = options.getArray("keys");
+                                candidateKeys = new ArrayList<>();
+                                for (int i = 0; i < keys.size(); i++) {
+                                    byte[] key = rnToBytes(keys, i);
+                                    if (key.length != 6) {
+                                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicWriteBlocks fail: invalid key (needs length 6 but has %d characters)", key.length);
+                                        callback.invoke(msg);
+                                        return;
+                                    }
+                                    candidateKeys.add(key);
+                                }
+                            }
+
+                            // in block order, so each sector is authenticated only once
+                            TreeMap<Integer, byte[]> writes = new TreeMap<>();
+                            ReadableMapKeySetIterator iterator = blocks.keySetIterator();
+                            while (iterator.hasNextKey()) {
+                                String key = iterator.nextKey();
+                                int blockIndex;
+                                try {
+                                    blockIndex = Integer.parseInt(key);
+                                } catch (NumberFormatException ex) {
+                                    callback.invoke("mifareClassicWriteBlocks fail: invalid block " + key);
+                                    return;
+                                }
+                                writes.put(blockIndex, rnToBytes(blocks.getDynamic(key)));
+                            }
+
+                            WritableArray results = Arguments.createArray();
+                            int failed = 0;
+                            int authenticatedSector = -1; // the sector tried last, unlockedBy is null if it failed
+                            MifareKeyCache.Entry unlockedBy = null;
+                            byte[] uid = mifareTag.getTag().getId();
+                            ndefCache.invalidate(uid);
+                            for (Map.Entry<Integer, byte[]> write : writes.entrySet()) {
+                                int blockIndex = write.getKey();
+                                byte[] buffer = write.getValue();
+                                String status;
+                                if (blockIndex < 0 || blockIndex >= mifareTag.getBlockCount() || buffer.length != MifareClassic.BLOCK_SIZE) {
+                                    status = WRITE_STATUS_INVALID;
+                                } else {
+                                    int sector = mifareTag.blockToSector(blockIndex);
+                                    if (candidateKeys != null && sector != authenticatedSector) {
+                                        MifareKeyCache.Entry hint = mifareKeyCache.lookup(uid, sector);
+                                        unlockedBy = MifareUtil.authenticateWithCandidates(mifareTag, sector, candidateKeys, hint, frameTrace);
+                                        mifareKeyCache.record(uid, sector, hint, unlockedBy);
+                                        authenticatedSector = sector;
+                                        if (unlockedBy == null) {
+                                            metrics.increment(NfcMetrics.COUNTER_AUTH_FAIL);
+                                        }
+                                    }
+
+                                    if (candidateKeys != null && unlockedBy == null) {
+                                        status = WRITE_STATUS_AUTH_FAIL;
+                                    } else {
+                                        boolean trailer = blockIndex == mifareTag.sectorToBlock(sector) + mifareTag.getBlockCountInSector(sector) - 1;
+                                        status = mifareClassicWriteAndVerify(mifareTag, blockIndex, buffer, verify && !trailer);
+                                        if (!WRITE_STATUS_OK.equals(status) && unlockedBy != null) {
+                                            // the card drops the authentication after a failed command
+                                            try {
+                                                if (!MifareUtil.authenticate(mifareTag, sector, unlockedBy.type, unlockedBy.key, frameTrace)) {
+                                                    unlockedBy = null;
+                                                }
+                                            } catch (TagLostException ex) {
+                                                throw ex;
+                                            } catch (IOException ex) {
+                                                // the rest of the sector then reports authFail, the next sector authenticates again
+                                                Log.d(LOG_TAG, "mifareClassicWriteBlocks: " + ex);
+                                                unlockedBy = null;
+                                            }
+                                        }
+                                    }
+                                }
+
+                                WritableMap blockResult = Arguments.createMap();
+                                blockResult.putInt("block", blockIndex);
+                                blockResult.putString("status", status);
+                                results.pushMap(blockResult);
+                                if (!WRITE_STATUS_OK.equals(status)) {
+                                    failed++;
+                                }
+                            }
+
+                            WritableMap result = Arguments.createMap();
+                            result.putArray("blocks", results);
+                            result.putInt("failed", failed);
+                            callback.invoke(null, result);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicWriteBlocks fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicWriteBlocks fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    private String mifareClassicWriteAndVerify(MifareClassic mifareTag, int blockIndex, byte[] buffer, boolean verify) throws IOException {
+        try {
+            frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_WRITE, "MifareClassic", 0xA0, blockIndex, buffer);
+            mifareTag.writeBlock(blockIndex, buffer);
+            frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+        } catch (TagLostException ex) {
+            throw ex;
+        } catch (IOException ex) {
+            frameTrace.fail(ex);
+            return WRITE_STATUS_WRITE_FAIL;
+        }
+        if (!verify) {
+            return WRITE_STATUS_OK;
+        }
+
+        try {
+            frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_READ, "MifareClassic", 0x30, blockIndex, null);
+            byte[] readBack = mifareTag.readBlock(blockIndex);
+            frameTrace.end(readBack);
+            return Arrays.equals(buffer, readBack) ? WRITE_STATUS_OK : WRITE_STATUS_VERIFY_FAIL;
+        } catch (TagLostException ex) {
+            throw ex;
+        } catch (IOException ex) {
+            frameTrace.fail(ex);
+            return WRITE_STATUS_VERIFY_FAIL;
+        }
+    }
+
+    @ReactMethod
+    public void mifareClassicIncrementBlock(final int blockIndex, final int value, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicIncrementBlock", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicIncrementBlock fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (blockIndex >= mifareTag.getBlockCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicIncrementBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_VALUE, "MifareClassic", 0xC1, blockIndex, value);
+                            mifareTag.increment(blockIndex, value);
+                            frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+
+                            callback.invoke(null, true);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicIncrementBlock fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicIncrementBlock fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareClassicDecrementBlock(final int blockIndex, final int value, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicDecrementBlock", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicDecrementBlock fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (blockIndex >= mifareTag.getBlockCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicDecrementBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_VALUE, "MifareClassic", 0xC0, blockIndex, value);
+                            mifareTag.decrement(blockIndex, value);
+                            frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+
+                            callback.invoke(null, true);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicDecrementBlock fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicDecrementBlock fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareClassicTransferBlock(final int blockIndex, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareClassicTransferBlock", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
+                            if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
+                                // Not a mifare card, fail
+                                callback.invoke("mifareClassicTransferBlock fail: TYPE_UNKNOWN");
+                                return;
+                            } else if (blockIndex >= mifareTag.getBlockCount()) {
+                                // Check if in range
+                                @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicTransferBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
+                                callback.invoke(msg);
+                                return;
+                            }
+
+                            frameTrace.begin(FrameTrace.OP_MIFARE_CLASSIC_VALUE, "MifareClassic", 0xB0, blockIndex, null);
+                            mifareTag.transfer(blockIndex);
+                            frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+
+                            callback.invoke(null, true);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareClassicTransferBlock fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareClassicTransferBlock fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void mifareUltralightReadPages(final int pageOffset, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareUltralightReadPages", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            MifareUltralight techHandle = (MifareUltralight)techRequest.getTechHandle();
+                            frameTrace.begin(FrameTrace.OP_MIFARE_ULTRALIGHT_READ, "MifareUltralight", 0x30, pageOffset, null);
+                            byte[] resultBytes = techHandle.readPages(pageOffset);
+                            frameTrace.end(resultBytes);
+                            callback.invoke(null, bytesToRn(resultBytes));
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareUltralight fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareUltralight fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Read the pages startPage..endPage (inclusive) into one buffer, with FAST_READ when the chip supports it
+     */
+    @ReactMethod
+    public void mifareUltralightReadRange(final int startPage, final int endPage, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareUltralightReadRange", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            if (startPage < 0 || endPage < startPage || endPage > 0xff) {
+                                callback.invoke("mifareUltralightReadRange fail: invalid page range");
+                                return;
+                            }
+                            TagTransport transport = frameTrace.wrap(techRequest.getTransport());
+                            String techType = techRequest.getTechType();
+                            if (transport == null || !(techType.equals("MifareUltralight") || techType.equals("NfcA"))) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+
+                            byte[] resultBytes = ultralightReadRange(transport, startPage, endPage);
+                            callback.invoke(null, bytesToRn(resultBytes));
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareUltralight fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareUltralight fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    private byte[] ultralightReadRange(TagTransport transport, int startPage, int endPage) throws IOException {
+        return ultralightReadRange(transport, techRequest.getTechHandle(), startPage, endPage);
+    }
+
+    private static byte[] ultralightReadRange(TagTransport transport, TagTechnology techHandle, int startPage, int endPage) throws IOException {
+        byte[] result = UltralightUtil.fastReadRange(transport, startPage, endPage);
+        if (result == null) {
+            // the NAK sent the chip back to IDLE, reconnect before falling back to READ
+            reconnect(techHandle);
+            result = UltralightUtil.readRange(transport, startPage, endPage);
+        }
+        return result;
+    }
+
+    private void reconnectTech() throws IOException {
+        reconnect(techRequest.getTechHandle());
+    }
+
+    private static void reconnect(TagTechnology techHandle) throws IOException {
+        techHandle.close();
+        techHandle.connect();
+    }
+
+    /**
+     * Write the pages from startPage, one WRITE per page, then read them back in one range read when verify is set.
+     * A page which fails doesn't stop the others, the status of each is reported.
+     */
+    @ReactMethod
+    public void mifareUltralightWritePages(final int startPage, final Dynamic rnArray, final ReadableMap options, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareUltralightWritePages", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            byte[] bytes = rnToBytes(rnArray);
+                            boolean verify = options.hasKey("verify") && options.getBoolean("verify");
+                            int pageCount = bytes.length / UltralightUtil.PAGE_SIZE;
+                            if (bytes.length == 0 || bytes.length % UltralightUtil.PAGE_SIZE != 0
+                                    || startPage < 0 || startPage + pageCount > 0x100) {
+                                callback.invoke("mifareUltralightWritePages fail: data should be whole pages inside the tag");
+                                return;
+                            }
+                            TagTransport transport = frameTrace.wrap(techRequest.getTransport());
+                            String techType = techRequest.getTechType();
+                            if (transport == null || !(techType.equals("MifareUltralight") || techType.equals("NfcA"))) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+
+                            // the pages may hold the NDEF area, a cached message would be stale
+                            ndefCache.invalidate(techRequest.getTechHandle().getTag().getId());
+                            String[] statuses = new String[pageCount];
+                            byte[] command = new byte[2 + UltralightUtil.PAGE_SIZE];
+                            for (int i = 0; i < pageCount; i++) {
+                                try {
+                                    UltralightUtil.writePage(transport, command, startPage + i, bytes, i * UltralightUtil.PAGE_SIZE);
+                                    statuses[i] = WRITE_STATUS_OK;
+                                } catch (TagLostException ex) {
+                                    throw ex;
+                                } catch (IOException ex) {
+                                    Log.d(LOG_TAG, "mifareUltralightWritePages: " + ex);
+                                    statuses[i] = WRITE_STATUS_WRITE_FAIL;
+                                    reconnectTech();
+                                }
+                            }
+
+                            if (verify) {
+                                byte[] readBack = ultralightReadRange(transport, startPage, startPage + pageCount - 1);
+                                for (int i = 0; i < pageCount; i++) {
+                                    int offset = i * UltralightUtil.PAGE_SIZE;
+                                    if (WRITE_STATUS_OK.equals(statuses[i])
+                                            && !rangeEquals(bytes, readBack, offset, UltralightUtil.PAGE_SIZE)) {
+                                        statuses[i] = WRITE_STATUS_VERIFY_FAIL;
+                                    }
+                                }
+                            }
+
+                            WritableArray results = Arguments.createArray();
+                            int failed = 0;
+                            for (int i = 0; i < pageCount; i++) {
+                                WritableMap pageResult = Arguments.createMap();
+                                pageResult.putInt("page", startPage + i);
+                                pageResult.putString("status", statuses[i]);
+                                results.pushMap(pageResult);
+                                if (!WRITE_STATUS_OK.equals(statuses[i])) {
+                                    failed++;
+                                }
+                            }
+                            WritableMap result = Arguments.createMap();
+                            result.putArray("pages", results);
+                            result.putInt("failed", failed);
+                            callback.invoke(null, result);
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareUltralightWritePages fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareUltralightWritePages fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    private static boolean rangeEquals(byte[] a, byte[] b, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @ReactMethod
+    public void mifareUltralightWritePage(final int pageOffset, final Dynamic rnArray, final Callback callback) {
+        nfcExecutor.execute(callback, timed("mifareUltralightWritePage", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            byte[] bytes = rnToBytes(rnArray);
+                            MifareUltralight techHandle = (MifareUltralight)techRequest.getTechHandle();
+                            ndefCache.invalidate(techHandle.getTag().getId());
+                            frameTrace.begin(FrameTrace.OP_MIFARE_ULTRALIGHT_WRITE, "MifareUltralight", 0xA2, pageOffset, bytes);
+                            techHandle.writePage(pageOffset, bytes);
+                            frameTrace.end(FrameTrace.ACK_RESPONSE);
+                            callback.invoke();
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("mifareUltralight fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("mifareUltralight fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void makeReadOnly(final Callback callback) {
+        nfcExecutor.execute(callback, timed("makeReadOnly", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            Ndef ndef = (Ndef)techRequest.getTechHandle();
+                            ndefCache.invalidate(ndef.getTag().getId());
+                            boolean result = ndef.makeReadOnly();
+                            callback.invoke(null, result);
+                        } catch (TagLostException ex) {
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void setTimeout(final int timeout, final Callback callback) {
+        nfcExecutor.execute(callback, timed("setTimeout", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            TagTransport transport = techRequest.getTransport();
+                            if (transport != null && transport.setTimeout(timeout)) {
+                                callback.invoke();
+                                return;
+                            }
+                            Log.d(LOG_TAG, "setTimeout not supported");
+                            callback.invoke(ERR_API_NOT_SUPPORT);
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, ex.toString());
+                            callback.invoke(ex.toString());
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void connect(final ReadableArray techs, final Callback callback) {
+        nfcExecutor.execute(callback, timed("connect", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    techRequest = new TagTechnologyRequest(techs.toArrayList(), null);
+                    if (techRequest.connect(NfcManager.this.tag)) {
+                        sessionState.set(SessionState.CONNECTED);
+                    } else {
+                        sessionState.set(SessionState.ARMED);
+                    }
+                    callback.invoke(null, null);
+                } catch (Exception ex) {
+                    callback.invoke(ex.toString());
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void close(final Callback callback) {
+        nfcExecutor.execute(callback, timed("close", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    techRequest.close();
+                    // the request stays around, only the tech handle is closed
+                    sessionState.set(SessionState.ARMED);
+                    callback.invoke(null, null);
+                } catch (Exception ex) {
+                    callback.invoke(ex.toString());
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void transceive(final Dynamic rnArray, final Callback callback) {
+        nfcExecutor.execute(callback, timed("transceive", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            byte[] bytes = rnToBytes(rnArray);
+                            TagTransport transport = frameTrace.wrap(techRequest.getTransport());
+                            if (transport == null) {
+                                Log.d(LOG_TAG, "transceive not supported");
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+                            byte[] resultBytes = transport.transceive(bytes);
+                            callback.invoke(null, bytesToRn(resultBytes));
+                        } catch (TagLostException ex) {
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, "transceive fail: " + ex);
+                            callback.invoke(ERR_TRANSCEIVE_FAIL);
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, "transceive fail: " + ex);
+                            callback.invoke(ERR_TRANSCEIVE_FAIL);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void transceiveBatch(final ReadableArray commands, final ReadableMap options, final Callback callback) {
+        nfcExecutor.execute(callback, timed("transceiveBatch", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        // resolve the options once, the whole batch is then executed without touching the bridge
+                        boolean followGetResponse = options.hasKey("followGetResponse") && options.getBoolean("followGetResponse");
+                        ReadableArray expectedSw = options.hasKey("expectedSw") ? options.getArray("expectedSw") : null;
+                        int[] acceptedSw = new int[expectedSw != null ? expectedSw.size() : 0];
+                        for (int i = 0; i < acceptedSw.length; i++) {
+                            acceptedSw[i] = expectedSw.getInt(i);
+                        }
+
+                        TagTransport transport = frameTrace.wrap(techRequest.getTransport());
+                        if (transport == null) {
+                            Log.d(LOG_TAG, "transceiveBatch not supported");
+                            callback.invoke(ERR_API_NOT_SUPPORT);
+                            return;
+                        }
+
+                        WritableArray results = Arguments.createArray();
+                        int i = 0;
+                        try {
+                            for (; i < commands.size(); i++) {
+                                byte[] resultBytes = transport.transceive(rnToBytes(commands, i));
+
+                                if (followGetResponse && "IsoDep".equals(transport.getTechType())) {
+                                    resultBytes = Iso7816Util.followResponseChain(transport, resultBytes);
+                                }
+
+                                pushBytesToRnArray(results, resultBytes);
+
+                                // stop at the first response whose status word is not in the accepted list,
+                                // the responses collected so far (including this one) are still reported
+                                if (acceptedSw.length > 0 && !isStatusWordAccepted(resultBytes, acceptedSw)) {
+                                    break;
+                                }
+                            }
+                            callback.invoke(null, results);
+                        } catch (TagLostException ex) {
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            Log.d(LOG_TAG, "transceiveBatch fail: " + ex);
+                            callback.invoke(ERR_TRANSCEIVE_FAIL, batchFailure(i, results, "TAG_LOST"));
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, "transceiveBatch fail: " + ex);
+                            callback.invoke(ERR_TRANSCEIVE_FAIL, batchFailure(i, results, ex.toString()));
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * The details passed along with the error of a failed batch: which frame failed,
+     * and the responses of the frames before it.
+     */
+    private static WritableMap batchFailure(int failedIndex, WritableArray responses, String error) {
+        WritableMap details = Arguments.createMap();
+        details.putInt("failedIndex", failedIndex);
+        details.putArray("responses", responses);
+        details.putString("error", error);
+        return details;
+    }
+
+    private static boolean isStatusWordAccepted(byte[] response, int[] acceptedSw) {
+        if (response.length < 2) {
+            return false;
+        }
+        int sw = ((response[response.length - 2] & 0xff) << 8) | (response[response.length - 1] & 0xff);
+        for (int accepted : acceptedSw) {
+            if (accepted == sw) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ISO 15693 blocks first..first+count-1 into one buffer, see NfcVUtil
+     */
+    @ReactMethod
+    public void nfcVReadBlocks(final int first, final int count, final Callback callback) {
+        nfcExecutor.execute(callback, timed("nfcVReadBlocks", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            if (first < 0 || count <= 0 || first + count > 0x10000) {
+                                callback.invoke("nfcV fail: invalid block range");
+                                return;
+                            }
+                            TagTransport transport = frameTrace.wrap(techRequest.getTransport());
+                            if (transport == null || !techRequest.getTechType().equals("NfcV")) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+                            byte[] uid = techRequest.getTechHandle().getTag().getId();
+                            int blockSize = NfcVUtil.getBlockSize(transport, uid, first);
+                            byte[] resultBytes = NfcVUtil.readBlocks(transport, uid, first, count, blockSize);
+                            callback.invoke(null, bytesToRn(resultBytes));
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("nfcV fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("nfcV fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Write whole ISO 15693 blocks from first, the data length has to be a multiple of the block size
+     */
+    @ReactMethod
+    public void nfcVWriteBlocks(final int first, final Dynamic rnArray, final Callback callback) {
+        nfcExecutor.execute(callback, timed("nfcVWriteBlocks", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            byte[] bytes = rnToBytes(rnArray);
+                            TagTransport transport = frameTrace.wrap(techRequest.getTransport());
+                            if (transport == null || !techRequest.getTechType().equals("NfcV")) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+                            byte[] uid = techRequest.getTechHandle().getTag().getId();
+                            int blockSize = NfcVUtil.getBlockSize(transport, uid, first);
+                            if (first < 0 || bytes.length == 0 || bytes.length % blockSize != 0
+                                    || first + bytes.length / blockSize > 0x10000) {
+                                callback.invoke("nfcV fail: data should be whole blocks of " + blockSize + " bytes");
+                                return;
+                            }
+                            ndefCache.invalidate(uid);
+                            NfcVUtil.writeBlocks(transport, uid, first, bytes, blockSize);
+                            callback.invoke();
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("nfcV fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("nfcV fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * SELECT a file by its 2 byte identifier, or an application by AID
+     *
+     * @return the response data without the status word
+     */
+    @ReactMethod
+    public void isoDepSelect(final Dynamic id, final Callback callback) {
+        nfcExecutor.execute(callback, timed("isoDepSelect", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            TagTransport transport = isoDepTransport();
+                            if (transport == null) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+                            byte[] resultBytes = Iso7816Util.select(transport, rnToBytes(id));
+                            callback.invoke(null, bytesToRn(resultBytes));
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("isoDep fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("isoDep fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * READ BINARY of the EF fid (or the current EF when fid is null), split into as few APDUs as
+     * the transceive length allows. A length of 0 reads up to the end of the file.
+     */
+    @ReactMethod
+    public void isoDepReadBinary(final Dynamic fid, final int offset, final int length, final Callback callback) {
+        nfcExecutor.execute(callback, timed("isoDepReadBinary", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            TagTransport transport = isoDepTransport();
+                            if (transport == null) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+                            if (offset < 0 || length < 0) {
+                                callback.invoke("isoDep fail: invalid range");
+                                return;
+                            }
+                            if (fid != null && !fid.isNull()) {
+                                Iso7816Util.select(transport, rnToBytes(fid));
+                            }
+                            byte[] resultBytes = Iso7816Util.readBinary(transport, offset, length, isExtendedLengthApduSupported());
+                            callback.invoke(null, bytesToRn(resultBytes));
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("isoDep fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("isoDep fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * UPDATE BINARY of the EF fid (or the current EF when fid is null), split like isoDepReadBinary
+     */
+    @ReactMethod
+    public void isoDepUpdateBinary(final Dynamic fid, final int offset, final Dynamic rnArray, final Callback callback) {
+        nfcExecutor.execute(callback, timed("isoDepUpdateBinary", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            TagTransport transport = isoDepTransport();
+                            if (transport == null) {
+                                callback.invoke(ERR_API_NOT_SUPPORT);
+                                return;
+                            }
+                            if (offset < 0) {
+                                callback.invoke("isoDep fail: invalid range");
+                                return;
+                            }
+                            if (fid != null && !fid.isNull()) {
+                                Iso7816Util.select(transport, rnToBytes(fid));
+                            }
+                            Iso7816Util.updateBinary(transport, offset, rnToBytes(rnArray), isExtendedLengthApduSupported());
+                            callback.invoke();
+                        } catch (TagLostException ex) {
+                            frameTrace.fail(ex);
+                            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                            callback.invoke("isoDep fail: TAG_LOST");
+                        } catch (Exception ex) {
+                            frameTrace.fail(ex);
+                            callback.invoke("isoDep fail: " + ex);
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * @return the transport of the connected IsoDep tech, or null
+     */
+    private TagTransport isoDepTransport() {
+        if (!"IsoDep".equals(techRequest.getTechType())) {
+            return null;
+        }
+        return frameTrace.wrap(techRequest.getTransport());
+    }
+
+    private boolean isExtendedLengthApduSupported() {
+        return ((IsoDep) techRequest.getTechHandle()).isExtendedLengthApduSupported();
+    }
+
+    @ReactMethod
+    public void getMaxTransceiveLength(final Callback callback) {
+        nfcExecutor.execute(callback, timed("getMaxTransceiveLength", new Runnable() {
+            @Override
+            public void run() {
+                sessionLock.lock();
+                try {
+                    if (techRequest != null) {
+                        try {
+                            TagTransport transport = techRequest.getTransport();
+                            if (transport != null) {
+                                callback.invoke(null, transport.getMaxTransceiveLength());
+                                return;
+                            }
+                            Log.d(LOG_TAG, "getMaxTransceiveLength not supported");
+                            callback.invoke(ERR_API_NOT_SUPPORT);
+                        } catch (Exception ex) {
+                            Log.d(LOG_TAG, "getMaxTransceiveLength fail");
+                            callback.invoke(ex.toString());
+                        }
+                    } else {
+                        callback.invoke(ERR_NO_TECH_REQ);
+                    }
+                } finally {
+                    sessionLock.unlock();
+                }
+            }
+        }));
+    }
+
+    @ReactMethod
+    public void startScanLoop(ReadableMap options, Callback callback) {
+        try {
+            if (!isForegroundEnabled) {
+                callback.invoke(ERR_NOT_REGISTERED);
+                return;
+            }
+
+            if (!isReaderModeEnabled) {
+                callback.invoke(ERR_READER_MODE_REQUIRED);
+                return;
+            }
+
+            if (hasPendingRequest()) {
+                metrics.increment(NfcMetrics.COUNTER_MULTI_REQ);
+                callback.invoke(ERR_MULTI_REQ);
+                return;
+            }
+
+            ReadableMap script = options.getMap("script");
+            ScanLoopRequest request = new ScanLoopRequest(options.getArray("techs").toArrayList(), script.getString("type"));
+            switch (request.script) {
+                case ScanLoopRequest.SCRIPT_NDEF:
+                    break;
+                case ScanLoopRequest.SCRIPT_ULTRALIGHT_PAGES:
+                    request.startPage = script.getInt("startPage");
+                    request.endPage = script.getInt("endPage");
+                    if (request.startPage < 0 || request.endPage < request.startPage || request.endPage > 0xff) {
+                        callback.invoke("startScanLoop fail: invalid page range");
                         return;
                     }
+                    break;
+                case ScanLoopRequest.SCRIPT_TRANSCEIVE: {
+                    ReadableArray commands = script.getArray("commands");
+                    request.commands = new ArrayList<>();
+                    for (int i = 0; i < commands.size(); i++) {
+                        request.commands.add(rnToBytes(commands, i));
+                    }
+                    break;
+                }
+                case ScanLoopRequest.SCRIPT_ENCODE: {
+                    // parsed once here, every tag gets the same message
+                    if (script.hasKey("template")) {
+                        NdefTemplate template = ndefTemplates.get(script.getInt("template"));
+                        if (template == null) {
+                            callback.invoke("startScanLoop fail: unknown template " + script.getInt("template"));
+                            return;
+                        }
+                        request.encodeMessage = template.fill(Collections.<String, byte[]>emptyMap()).message;
+                    } else {
+                        request.encodeMessage = new NdefMessage(rnToBytes(script.getDynamic("message")));
+                    }
+                    // what Ndef.writeNdefMessage puts on the tag, the input may be valid but not canonical
+                    // (e.g. a long record with a short payload), the readback is compared with this
+                    request.encodeBytes = request.encodeMessage.toByteArray();
+                    String verify = script.hasKey("verify") ? script.getString("verify") : ScanLoopRequest.VERIFY_READBACK;
+                    if (!ScanLoopRequest.VERIFY_READBACK.equals(verify) && !ScanLoopRequest.VERIFY_NONE.equals(verify)) {
+                        callback.invoke("startScanLoop fail: invalid verify " + verify);
+                        return;
+                    }
+                    request.verify = ScanLoopRequest.VERIFY_READBACK.equals(verify);
+                    request.format = !script.hasKey("format") || script.getBoolean("format");
+                    request.lock = script.hasKey("lock") && script.getBoolean("lock");
+                    request.retries = script.hasKey("retries") ? Math.max(0, script.getInt("retries")) : 1;
+                    request.encodingStats = new EncodingStats(System.nanoTime());
+                    break;
+                }
+                default:
+                    callback.invoke(ERR_API_NOT_SUPPORT);
+                    return;
+            }
+
+            scanLoop = request;
+            callback.invoke();
+        } catch (FormatException ex) {
+            callback.invoke("startScanLoop fail: " + ex);
+        }
+    }
+
+    @ReactMethod
+    public void stopScanLoop(Callback callback) {
+        // the tag being processed (under the session lock) finishes with the request it started with
+        ScanLoopRequest loop = scanLoop;
+        if (loop == null) {
+            callback.invoke(ERR_NO_SCAN_LOOP);
+            return;
+        }
+        scanLoop = null;
+        WritableMap result = Arguments.createMap();
+        result.putInt("tagCount", loop.tagCount);
+        if (loop.encodingStats != null) {
+            result.putMap("encoding", loop.encodingStats.toReact());
+        }
+        callback.invoke(null, result);
+    }
+
+    /**
+     * The encoding counters of the running scan loop, without stopping it.
+     */
+    @ReactMethod
+    public void getScanLoopStats(Callback callback) {
+        ScanLoopRequest loop = scanLoop;
+        if (loop == null) {
+            callback.invoke(ERR_NO_SCAN_LOOP);
+            return;
+        }
+        WritableMap result = Arguments.createMap();
+        result.putInt("tagCount", loop.tagCount);
+        if (loop.encodingStats != null) {
+            result.putMap("encoding", loop.encodingStats.toReact());
+        }
+        callback.invoke(null, result);
+    }
 
-                    WritableArray result = Arguments.createArray();
-                    int blocks = mifareTag.getBlockCountInSector(sectorIndex);
-                    byte[] buffer;
-                    for (int i = 0; i < blocks; i++) {
-                        buffer = mifareTag.readBlock(mifareTag.sectorToBlock(sectorIndex)+i);
-                        appendBytesToRnArray(result, buffer);
+    /**
+     * Runs the scan loop script against the discovered tag and emits the outcome,
+     * reader mode will deliver the next tag without any js round trip.
+     */
+    private void runScanLoop(Tag tag) {
+        sessionLock.lock();
+        try {
+            // stopScanLoop doesn't wait for the session lock, keep using the request this tag started with
+            ScanLoopRequest loop = scanLoop;
+            if (loop == null) {
+                return;
+            }
+
+            this.tag = tag;
+            loop.tagCount++;
+            WritableMap event = Arguments.createMap();
+            event.putMap("tag", tag2React(tag));
+            event.putInt("count", loop.tagCount);
+
+            if (ScanLoopRequest.SCRIPT_ENCODE.equals(loop.script)) {
+                // the pipeline picks Ndef or NdefFormatable itself
+                encodeTag(loop, tag, event);
+                sendEvent("NfcManagerScanLoopResult", event);
+                return;
+            }
+
+            TagTechnologyRequest request = new TagTechnologyRequest(loop.techs, null);
+            if (!request.connect(tag)) {
+                event.putString("error", ERR_NO_TECH_MATCH);
+                sendEvent("NfcManagerScanLoopResult", event);
+                return;
+            }
+
+            event.putString("tech", request.getTechType());
+            try {
+                TagTechnology baseTechHandle = request.getTechHandle();
+                switch (loop.script) {
+                    case ScanLoopRequest.SCRIPT_NDEF: {
+                        if (!(baseTechHandle instanceof Ndef)) {
+                            event.putString("error", ERR_API_NOT_SUPPORT);
+                            break;
+                        }
+                        frameTrace.begin(FrameTrace.OP_NDEF_READ, "Ndef", null);
+                        NdefMessage message = ((Ndef) baseTechHandle).getNdefMessage();
+                        frameTrace.end(message != null && frameTrace.isEnabled() ? message.toByteArray() : FrameTrace.EMPTY_RESPONSE);
+                        if (message != null) {
+                            event.putArray("ndefMessage", Util.messageToReact(message, isBase64Encoding(), ndefDecoding));
+                        }
+                        break;
+                    }
+                    case ScanLoopRequest.SCRIPT_ULTRALIGHT_PAGES: {
+                        if (!(baseTechHandle instanceof MifareUltralight)) {
+                            event.putString("error", ERR_API_NOT_SUPPORT);
+                            break;
+                        }
+                        MifareUltralight techHandle = (MifareUltralight) baseTechHandle;
+                        int pageCount = loop.endPage - loop.startPage + 1;
+                        byte[] result = new byte[pageCount * MifareUltralight.PAGE_SIZE];
+                        // readPages always returns 4 pages, only keep the ones inside the range
+                        for (int page = loop.startPage; page <= loop.endPage; page += 4) {
+                            frameTrace.begin(FrameTrace.OP_MIFARE_ULTRALIGHT_READ, "MifareUltralight", 0x30, page, null);
+                            byte[] pages = techHandle.readPages(page);
+                            frameTrace.end(pages);
+                            int offset = (page - loop.startPage) * MifareUltralight.PAGE_SIZE;
+                            System.arraycopy(pages, 0, result, offset, Math.min(pages.length, result.length - offset));
+                        }
+                        putBytes(event, "result", result);
+                        break;
+                    }
+                    case ScanLoopRequest.SCRIPT_TRANSCEIVE: {
+                        TagTransport transport = frameTrace.wrap(request.getTransport());
+                        if (transport == null) {
+                            event.putString("error", ERR_API_NOT_SUPPORT);
+                            break;
+                        }
+                        WritableArray responses = Arguments.createArray();
+                        for (byte[] command : loop.commands) {
+                            pushBytesToRnArray(responses, transport.transceive(command));
+                        }
+                        event.putArray("result", responses);
+                        break;
                     }
-
-                    callback.invoke(null, result);
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareClassicReadSector fail: TAG_LOST");
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicReadSector fail: " + ex);
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
+            } catch (TagLostException ex) {
+                frameTrace.fail(ex);
+                metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+                event.putString("error", "TAG_LOST");
+            } catch (Exception ex) {
+                frameTrace.fail(ex);
+                Log.d(LOG_TAG, "scan loop fail: " + ex);
+                event.putString("error", ex.toString());
+            } finally {
+                request.close();
             }
+
+            sendEvent("NfcManagerScanLoopResult", event);
+        } finally {
+            sessionLock.unlock();
         }
     }
 
-    @ReactMethod
-    public void mifareClassicWriteBlock(int blockIndex, ReadableArray block, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicWriteBlock fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (blockIndex >= mifareTag.getBlockCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicWriteBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
-                        callback.invoke(msg);
-                        return;
-                    } else if (block.size() != MifareClassic.BLOCK_SIZE) {
-                        // Wrong block count
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicWriteBlock fail: invalid block size %d (should be %d)", block.size(), MifareClassic.BLOCK_SIZE);
-                        callback.invoke(msg);
-                        return;
-                    }
-
-                    byte[] buffer = rnArrayToBytes(block);
-                    mifareTag.writeBlock(blockIndex, buffer);
+    /**
+     * The encoding pipeline for one tag: format (blank NdefFormatable tag) or write, verify by reading
+     * the message back, then lock. A failed write or verification is retried up to `retries` times
+     * while the tag stays in the field. Runs under the session lock.
+     */
+    private void encodeTag(ScanLoopRequest loop, Tag tag, WritableMap event) {
+        long start = System.nanoTime();
+        int attempts = 0;
+        String reason = null;
+        boolean locked = false;
+        TagTechnology handle = null;
+        ndefCache.invalidate(tag.getId());
+        try {
+            Ndef ndef = Ndef.get(tag);
+            NdefFormatable formatable = ndef == null && loop.format ? NdefFormatable.get(tag) : null;
+            if (ndef != null) {
+                event.putString("tech", "Ndef");
+                handle = ndef;
+                ndef.connect();
+                if (!ndef.isWritable()) {
+                    reason = EncodingStats.REASON_READ_ONLY;
+                } else if (ndef.getMaxSize() < loop.encodeBytes.length) {
+                    reason = EncodingStats.REASON_TOO_SMALL;
+                } else {
+                    do {
+                        attempts++;
+                        reason = encodeAttempt(ndef, loop, event);
+                    } while (reason != null && attempts <= loop.retries);
 
-                    callback.invoke(null, true);
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareClassicWriteBlock fail: TAG_LOST");
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicWriteBlock fail: " + ex);
+                    if (reason == null && loop.lock) {
+                        try {
+                            locked = ndef.canMakeReadOnly() && ndef.makeReadOnly();
+                        } catch (TagLostException ex) {
+                            throw ex;
+                        } catch (IOException ex) {
+                            Log.d(LOG_TAG, "encode lock fail: " + ex);
+                        }
+                        if (!locked) {
+                            reason = EncodingStats.REASON_LOCK_FAIL;
+                        }
+                    }
                 }
+            } else if (formatable != null) {
+                // the tech list of this Tag predates the format, so the message can't be read back
+                // through Ndef until the tag is presented again; locking formats read only right away
+                event.putString("tech", "NdefFormatable");
+                handle = formatable;
+                formatable.connect();
+                do {
+                    attempts++;
+                    reason = null;
+                    try {
+                        frameTrace.begin(FrameTrace.OP_NDEF_WRITE, "NdefFormatable", frameTrace.isEnabled() ? loop.encodeBytes : null);
+                        if (loop.lock) {
+                            formatable.formatReadOnly(loop.encodeMessage);
+                        } else {
+                            formatable.format(loop.encodeMessage);
+                        }
+                        frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+                        locked = loop.lock;
+                    } catch (TagLostException ex) {
+                        throw ex;
+                    } catch (IOException | FormatException ex) {
+                        frameTrace.fail(ex);
+                        Log.d(LOG_TAG, "encode format fail: " + ex);
+                        reason = EncodingStats.REASON_FORMAT_FAIL;
+                    }
+                } while (reason != null && attempts <= loop.retries);
             } else {
-                callback.invoke(ERR_NO_TECH_REQ);
+                reason = EncodingStats.REASON_NOT_NDEF;
             }
-        }
-    }
-
-    @ReactMethod
-    public void mifareClassicIncrementBlock(int blockIndex, int value, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
+        } catch (TagLostException ex) {
+            frameTrace.fail(ex);
+            metrics.increment(NfcMetrics.COUNTER_TAG_LOST);
+            reason = EncodingStats.REASON_TAG_LOST;
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "encode fail: " + ex);
+            reason = EncodingStats.REASON_WRITE_FAIL;
+        } finally {
+            if (handle != null) {
                 try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicIncrementBlock fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (blockIndex >= mifareTag.getBlockCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicIncrementBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
-                        callback.invoke(msg);
-                        return;
-                    }
-
-                    mifareTag.increment(blockIndex, value);
-
-                    callback.invoke(null, true);
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareClassicIncrementBlock fail: TAG_LOST");
+                    handle.close();
                 } catch (Exception ex) {
-                    callback.invoke("mifareClassicIncrementBlock fail: " + ex);
+                    Log.d(LOG_TAG, "encode close fail: " + ex);
                 }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
             }
         }
-    }
 
-    @ReactMethod
-    public void mifareClassicDecrementBlock(int blockIndex, int value, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicDecrementBlock fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (blockIndex >= mifareTag.getBlockCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicDecrementBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
-                        callback.invoke(msg);
-                        return;
-                    }
+        loop.encodingStats.record(reason, attempts, System.nanoTime());
+        event.putInt("attempts", attempts);
+        event.putBoolean("locked", locked);
+        event.putDouble("durationMs", (System.nanoTime() - start) / 1e6);
+        if (reason != null) {
+            event.putString("error", reason);
+        }
+    }
 
-                    mifareTag.decrement(blockIndex, value);
+    /**
+     * One write of the encoding message, plus the readback when verifying.
+     *
+     * @return the failure reason, or null
+     */
+    private String encodeAttempt(Ndef ndef, ScanLoopRequest loop, WritableMap event) throws IOException {
+        try {
+            frameTrace.begin(FrameTrace.OP_NDEF_WRITE, "Ndef", frameTrace.isEnabled() ? loop.encodeBytes : null);
+            ndef.writeNdefMessage(loop.encodeMessage);
+            frameTrace.end(FrameTrace.EMPTY_RESPONSE);
+        } catch (TagLostException ex) {
+            throw ex;
+        } catch (IOException | FormatException ex) {
+            frameTrace.fail(ex);
+            Log.d(LOG_TAG, "encode write fail: " + ex);
+            return EncodingStats.REASON_WRITE_FAIL;
+        }
+        if (!loop.verify) {
+            return null;
+        }
 
-                    callback.invoke(null, true);
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareClassicDecrementBlock fail: TAG_LOST");
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicDecrementBlock fail: " + ex);
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
+        boolean verified;
+        try {
+            // reconnect, otherwise the message written in this session may not be read from the tag
+            ndef.close();
+            ndef.connect();
+            frameTrace.begin(FrameTrace.OP_NDEF_READ, "Ndef", null);
+            NdefMessage message = ndef.getNdefMessage();
+            byte[] readBack = message != null ? message.toByteArray() : null;
+            frameTrace.end(readBack != null && frameTrace.isEnabled() ? readBack : FrameTrace.EMPTY_RESPONSE);
+            verified = Arrays.equals(readBack, loop.encodeBytes);
+        } catch (TagLostException ex) {
+            throw ex;
+        } catch (IOException | FormatException ex) {
+            frameTrace.fail(ex);
+            Log.d(LOG_TAG, "encode verify fail: " + ex);
+            verified = false;
         }
+        event.putBoolean("verified", verified);
+        return verified ? null : EncodingStats.REASON_VERIFY_FAIL;
     }
 
     @ReactMethod
-    public void mifareClassicTransferBlock(int blockIndex, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    MifareClassic mifareTag = (MifareClassic) techRequest.getTechHandle();
-                    if (mifareTag == null || mifareTag.getType() == MifareClassic.TYPE_UNKNOWN) {
-                        // Not a mifare card, fail
-                        callback.invoke("mifareClassicTransferBlock fail: TYPE_UNKNOWN");
-                        return;
-                    } else if (blockIndex >= mifareTag.getBlockCount()) {
-                        // Check if in range
-                        @SuppressLint("DefaultLocale") String msg = String.format("mifareClassicTransferBlock fail: invalid block %d (max %d)", blockIndex, mifareTag.getBlockCount());
-                        callback.invoke(msg);
-                        return;
-                    }
-
-                    mifareTag.transfer(blockIndex);
-
-                    callback.invoke(null, true);
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareClassicTransferBlock fail: TAG_LOST");
-                } catch (Exception ex) {
-                    callback.invoke("mifareClassicTransferBlock fail: " + ex);
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
-        }
+    public void getSessionState(Callback callback) {
+        WritableMap result = Arguments.createMap();
+        result.putString("state", sessionState.get().name());
+        result.putDouble("lockAcquisitions", sessionLock.getAcquisitions());
+        result.putDouble("lockContentions", sessionLock.getContentions());
+        result.putDouble("lockWaitTotalMs", sessionLock.getTotalWaitNanos() / 1e6);
+        result.putDouble("lockWaitMaxMs", sessionLock.getMaxWaitNanos() / 1e6);
+        callback.invoke(null, result);
     }
 
     @ReactMethod
-    public void mifareUltralightReadPages(int pageOffset, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    MifareUltralight techHandle = (MifareUltralight)techRequest.getTechHandle();
-                    byte[] resultBytes = techHandle.readPages(pageOffset);
-                    WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                    callback.invoke(null, resultRnArray);
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareUltralight fail: TAG_LOST");
-                } catch (Exception ex) {
-                    callback.invoke("mifareUltralight fail: " + ex);
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
-        }
+    public void getMetrics(Callback callback) {
+        WritableMap result = metrics.toReact();
+        WritableMap lock = Arguments.createMap();
+        lock.putDouble("acquisitions", sessionLock.getAcquisitions());
+        lock.putDouble("contentions", sessionLock.getContentions());
+        lock.putDouble("waitTotalMs", sessionLock.getTotalWaitNanos() / 1e6);
+        lock.putDouble("waitMaxMs", sessionLock.getMaxWaitNanos() / 1e6);
+        result.putMap("lock", lock);
+        result.putMap("tagEventBatching", tagEventBatcher.statsToReact());
+        callback.invoke(null, result);
     }
 
     @ReactMethod
-    public void mifareUltralightWritePage(int pageOffset, ReadableArray rnArray, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    byte[] bytes = rnArrayToBytes(rnArray);
-                    MifareUltralight techHandle = (MifareUltralight)techRequest.getTechHandle();
-                    techHandle.writePage(pageOffset, bytes);
-                    callback.invoke();
-                } catch (TagLostException ex) {
-                    callback.invoke("mifareUltralight fail: TAG_LOST");
-                } catch (Exception ex) {
-                    callback.invoke("mifareUltralight fail: " + ex);
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
-        }
+    public void resetMetrics(Callback callback) {
+        metrics.reset();
+        sessionLock.resetStats();
+        tagEventBatcher.resetStats();
+        callback.invoke();
     }
 
+    /**
+     * Deliver the discovered tags as NfcManagerDiscoverTagBatch events, at most one per interval
+     */
     @ReactMethod
-    public void makeReadOnly(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    Ndef ndef = (Ndef)techRequest.getTechHandle();
-                    boolean result = ndef.makeReadOnly();
-                    callback.invoke(null, result);
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, ex.toString());
-                    callback.invoke(ex.toString());
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
+    public void configureTagEventBatching(ReadableMap options, Callback callback) {
+        boolean enabled = options.hasKey("enabled") && options.getBoolean("enabled");
+        int intervalMs = options.hasKey("intervalMs") ? options.getInt("intervalMs") : TagEventBatcher.DEFAULT_INTERVAL_MS;
+        int maxQueued = options.hasKey("maxQueued") ? options.getInt("maxQueued") : TagEventBatcher.DEFAULT_MAX_QUEUED;
+        String overflow = options.hasKey("overflow") ? options.getString("overflow") : TagEventBatcher.OVERFLOW_DROP_OLDEST;
+        if (intervalMs < 0 || maxQueued <= 0) {
+            callback.invoke("configureTagEventBatching fail: invalid intervalMs or maxQueued");
+            return;
+        }
+        if (!TagEventBatcher.OVERFLOW_DROP_OLDEST.equals(overflow) && !TagEventBatcher.OVERFLOW_DROP_NEWEST.equals(overflow)) {
+            callback.invoke("configureTagEventBatching fail: invalid overflow policy");
+            return;
         }
+        tagEventBatcher.configure(enabled, intervalMs, maxQueued, overflow);
+        callback.invoke();
     }
 
     @ReactMethod
-    public void setTimeout(int timeout, Callback callback) {
-        synchronized (this) {
-            if (techRequest != null) {
-                try {
-                    String tech = techRequest.getTechType();
-                    TagTechnology baseTechHandle = techRequest.getTechHandle();
-                    // TagTechnology is the base class for each tech (ex, NfcA, NfcB, IsoDep ...)
-                    // but it doesn't provide transceive in its interface, so we need to explicitly cast it
-                    switch (tech) {
-                        case "NfcA": {
-                            NfcA techHandle = (NfcA) baseTechHandle;
-                            techHandle.setTimeout(timeout);
-                            callback.invoke();
-                            return;
-                        }
-                        case "NfcF": {
-                            NfcF techHandle = (NfcF) baseTechHandle;
-                            techHandle.setTimeout(timeout);
-                            callback.invoke();
-                            return;
-                        }
-                        case "IsoDep": {
-                            IsoDep techHandle = (IsoDep) baseTechHandle;
-                            techHandle.setTimeout(timeout);
-                            callback.invoke();
-                            return;
-                        }
-                        case "MifareClassic": {
-                            MifareClassic techHandle = (MifareClassic) baseTechHandle;
-                            techHandle.setTimeout(timeout);
-                            callback.invoke();
-                            return;
-                        }
-                        case "MifareUltralight": {
-                            MifareUltralight techHandle = (MifareUltralight) baseTechHandle;
-                            techHandle.setTimeout(timeout);
-                            callback.invoke();
-                            return;
-                        }
-                    }
-                    Log.d(LOG_TAG, "setTimeout not supported");
-                    callback.invoke(ERR_API_NOT_SUPPORT);
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, ex.toString());
-                    callback.invoke(ex.toString());
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
+    public void startFrameTrace(ReadableMap options, Callback callback) {
+        int capacity = options.hasKey("capacityKb") ? options.getInt("capacityKb") * 1024 : FrameTrace.DEFAULT_CAPACITY;
+        if (capacity <= 0) {
+            callback.invoke("startFrameTrace fail: invalid capacity");
+            return;
         }
+        frameTrace.start(capacity);
+        callback.invoke();
     }
 
     @ReactMethod
-    public void connect(ReadableArray techs, Callback callback){
-        synchronized(this) {
-            try {
-                techRequest = new TagTechnologyRequest(techs.toArrayList(), null);
-                techRequest.connect(this.tag);
-                callback.invoke(null, null);
-            } catch (Exception ex) {
-                callback.invoke(ex.toString());
-            }
-        }
+    public void stopFrameTrace(Callback callback) {
+        frameTrace.stop();
+        WritableMap result = Arguments.createMap();
+        result.putInt("frames", frameTrace.getFrameCount());
+        result.putInt("dropped", frameTrace.getDroppedCount());
+        callback.invoke(null, result);
     }
 
+    /**
+     * Write the buffered frames to the given file, or to a new file in the app's files dir if path is null.
+     */
     @ReactMethod
-    public void close(Callback callback){
-        synchronized(this) {
-            try {
-                techRequest.close();
-                callback.invoke(null, null);
-            } catch (Exception ex) {
-                callback.invoke(ex.toString());
-            }
+    public void flushFrameTrace(@Nullable String path, Callback callback) {
+        File file = path != null ? new File(path) : new File(context.getFilesDir(), "nfc-trace-" + System.currentTimeMillis() + ".bin");
+        try {
+            frameTrace.flush(file);
+            WritableMap result = Arguments.createMap();
+            result.putString("path", file.getAbsolutePath());
+            result.putInt("frames", frameTrace.getFrameCount());
+            result.putInt("dropped", frameTrace.getDroppedCount());
+            callback.invoke(null, result);
+        } catch (Exception ex) {
+            Log.d(LOG_TAG, "flushFrameTrace fail: " + ex);
+            callback.invoke("flushFrameTrace fail: " + ex);
         }
     }
 
     @ReactMethod
-    public void transceive(ReadableArray rnArray, Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    String tech = techRequest.getTechType();
-                    byte[] bytes = rnArrayToBytes(rnArray);
-
-                    TagTechnology baseTechHandle = techRequest.getTechHandle();
-                    // TagTechnology is the base class for each tech (ex, NfcA, NfcB, IsoDep ...)
-                    // but it doesn't provide transceive in its interface, so we need to explicitly cast it
-                    switch (tech) {
-                        case "NfcA": {
-                            NfcA techHandle = (NfcA) baseTechHandle;
-                            byte[] resultBytes = techHandle.transceive(bytes);
-                            WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                            callback.invoke(null, resultRnArray);
-                            return;
-                        }
-                        case "NfcB": {
-                            NfcB techHandle = (NfcB) baseTechHandle;
-                            byte[] resultBytes = techHandle.transceive(bytes);
-                            WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                            callback.invoke(null, resultRnArray);
-                            return;
-                        }
-                        case "NfcF": {
-                            NfcF techHandle = (NfcF) baseTechHandle;
-                            byte[] resultBytes = techHandle.transceive(bytes);
-                            WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                            callback.invoke(null, resultRnArray);
-                            return;
-                        }
-                        case "NfcV": {
-                            NfcV techHandle = (NfcV) baseTechHandle;
-                            byte[] resultBytes = techHandle.transceive(bytes);
-                            WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                            callback.invoke(null, resultRnArray);
-                            return;
-                        }
-                        case "IsoDep": {
-                            IsoDep techHandle = (IsoDep) baseTechHandle;
-                            byte[] resultBytes = techHandle.transceive(bytes);
-                            WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                            callback.invoke(null, resultRnArray);
-                            return;
-                        }
-                        case "MifareClassic": {
-                            MifareClassic techHandle = (MifareClassic) baseTechHandle;
-                            byte[] resultBytes = techHandle.transceive(bytes);
-                            WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                            callback.invoke(null, resultRnArray);
-                            return;
-                        }
-                        case "MifareUltralight": {
-                            MifareUltralight techHandle = (MifareUltralight) baseTechHandle;
-                            byte[] resultBytes = techHandle.transceive(bytes);
-                            WritableArray resultRnArray = bytesToRnArray(resultBytes);
-                            callback.invoke(null, resultRnArray);
-                            return;
-                        }
-                    }
-                    Log.d(LOG_TAG, "transceive not supported");
-                    callback.invoke(ERR_API_NOT_SUPPORT);
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, "transceive fail: " + ex);
-                    callback.invoke(ERR_TRANSCEIVE_FAIL);
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
-        }
+    public void setNdefDecoding(boolean enabled, Callback callback) {
+        ndefDecoding = enabled;
+        callback.invoke();
     }
 
     @ReactMethod
-    public void getMaxTransceiveLength(Callback callback) {
-        synchronized(this) {
-            if (techRequest != null) {
-                try {
-                    String tech = techRequest.getTechType();
-
-                    TagTechnology baseTechHandle = techRequest.getTechHandle();
-                    // TagTechnology is the base class for each tech (ex, NfcA, NfcB, IsoDep ...)
-                    // but it doesn't provide transceive in its interface, so we need to explicitly cast it
-                    switch (tech) {
-                        case "NfcA": {
-                            NfcA techHandle = (NfcA) baseTechHandle;
-                            int max = techHandle.getMaxTransceiveLength();
-                            callback.invoke(null, max);
-                            return;
-                        }
-                        case "NfcB": {
-                            NfcB techHandle = (NfcB) baseTechHandle;
-                            int max = techHandle.getMaxTransceiveLength();
-                            callback.invoke(null, max);
-                            return;
-                        }
-                        case "NfcF": {
-                            NfcF techHandle = (NfcF) baseTechHandle;
-                            int max = techHandle.getMaxTransceiveLength();
-                            callback.invoke(null, max);
-                            return;
-                        }
-                        case "NfcV": {
-                            NfcV techHandle = (NfcV) baseTechHandle;
-                            int max = techHandle.getMaxTransceiveLength();
-                            callback.invoke(null, max);
-                            return;
-                        }
-                        case "IsoDep": {
-                            IsoDep techHandle = (IsoDep) baseTechHandle;
-                            int max = techHandle.getMaxTransceiveLength();
-                            callback.invoke(null, max);
-                            return;
-                        }
-                        case "MifareUltralight": {
-                            MifareUltralight techHandle = (MifareUltralight) baseTechHandle;
-                            int max = techHandle.getMaxTransceiveLength();
-                            callback.invoke(null, max);
-                            return;
-                        }
-                    }
-                    Log.d(LOG_TAG, "getMaxTransceiveLength not supported");
-                    callback.invoke(ERR_API_NOT_SUPPORT);
-                } catch (Exception ex) {
-                    Log.d(LOG_TAG, "getMaxTransceiveLength fail");
-                    callback.invoke(ex.toString());
-                }
-            } else {
-                callback.invoke(ERR_NO_TECH_REQ);
-            }
+    public void setByteEncoding(String encoding, Callback callback) {
+        if (BYTE_ENCODING_ARRAY.equals(encoding) || BYTE_ENCODING_BASE64.equals(encoding)) {
+            byteEncoding = encoding;
+            callback.invoke();
+        } else {
+            callback.invoke(ERR_INVALID_BYTE_ENCODING);
         }
     }
 
     @ReactMethod
     public void cancelNdefWrite(Callback callback) {
-        synchronized(this) {
-            if (writeNdefRequest != null) {
-                writeNdefRequest.callback.invoke(ERR_CANCEL);
-                writeNdefRequest = null;
-                callback.invoke();
-            } else {
-                callback.invoke(ERR_NOT_REGISTERED);
-            }
+        WriteNdefRequest request = writeNdefRequest.getAndSet(null);
+        if (request != null) {
+            request.callback.invoke(ERR_CANCEL);
+            callback.invoke();
+        } else {
+            callback.invoke(ERR_NOT_REGISTERED);
         }
     }
 
     @ReactMethod
-    public void requestNdefWrite(ReadableArray rnArray, ReadableMap options, Callback callback) {
-        synchronized(this) {
-            if (!isForegroundEnabled) {
-                callback.invoke(ERR_NOT_REGISTERED);
-                return;
-            }
-
-            if (hasPendingRequest()) {
-                callback.invoke(ERR_MULTI_REQ);
-            } else {
-                boolean format = options.getBoolean("format");
-                boolean formatReadOnly = options.getBoolean("formatReadOnly");
+    public void requestNdefWrite(Dynamic rnArray, ReadableMap options, Callback callback) {
+        if (!isForegroundEnabled) {
+            callback.invoke(ERR_NOT_REGISTERED);
+            return;
+        }
 
-                try {
-                    NdefMessage msgToWrite;
+        if (hasPendingRequest()) {
+            metrics.increment(NfcMetrics.COUNTER_MULTI_REQ);
+            callback.invoke(ERR_MULTI_REQ);
+        } else {
+            boolean format = options.getBoolean("format");
+            boolean formatReadOnly = options.getBoolean("formatReadOnly");
 
-                    /// the only case we allow ndef message to be null is when formatting, see:
-                    /// https://developer.android.com/reference/android/nfc/tech/NdefFormatable.html#format(android.nfc.NdefMessage)
-                    ///	this API allows the `firstMessage` to be null
-                    if (format && rnArray == null) {
-                        msgToWrite = null;
-                    } else {
-                        byte[] bytes = rnArrayToBytes(rnArray);
-                        msgToWrite = new NdefMessage(bytes);
-                    }
+            try {
+                NdefMessage msgToWrite;
 
-                    writeNdefRequest = new WriteNdefRequest(
-                            msgToWrite,
-                            callback, // defer the callback
-                            format,
-                            formatReadOnly
-                    );
-                } catch (FormatException e) {
-                    callback.invoke(e.toString());
+                /// the only case we allow ndef message to be null is when formatting, see:
+                /// https://developer.android.com/reference/android/nfc/tech/NdefFormatable.html#format(android.nfc.NdefMessage)
+                ///	this API allows the `firstMessage` to be null
+                if (format && (rnArray == null || rnArray.isNull())) {
+                    msgToWrite = null;
+                } else {
+                    byte[] bytes = rnToBytes(rnArray);
+                    msgToWrite = new NdefMessage(bytes);
                 }
+
+                writeNdefRequest.set(new WriteNdefRequest(
+                        msgToWrite,
+                        callback, // defer the callback
+                        format,
+                        formatReadOnly
+                ));
+            } catch (FormatException e) {
+                callback.invoke(e.toString());
             }
         }
     }
@@ -970,8 +2821,17 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
 
             currentActivity.registerReceiver(mReceiver, filter);
             Intent launchIntent = currentActivity.getIntent();
-            // we consider the launching intent to be background
-            bgTag = parseNfcIntent(launchIntent);
+            // we consider the launching intent to be background, but only once: a relaunch from
+            // the recents screen (after process death) delivers the same intent again
+            if (launchIntent != null
+                    && !launchIntent.getBooleanExtra(EXTRA_LAUNCH_TAG_QUEUED, false)
+                    && (launchIntent.getFlags() & Intent.FLAG_ACTIVITY_LAUNCHED_FROM_HISTORY) == 0) {
+                launchIntent.putExtra(EXTRA_LAUNCH_TAG_QUEUED, true);
+                WritableMap launchTag = parseNfcIntent(launchIntent);
+                if (launchTag != null) {
+                    bgTags.offer(launchTag);
+                }
+            }
             callback.invoke();
         } else {
             Log.d(LOG_TAG, "not support in this device");
@@ -1047,22 +2907,51 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
         callback.invoke(null, nfcTag);
     }
 
+    /**
+     * The most recent background tag, drainBackgroundTags returns all of them
+     */
     @ReactMethod
     public void getBackgroundTag(Callback callback) {
-        callback.invoke(null, bgTag);
+        callback.invoke(null, bgTags.peekLatest());
     }
 
     @ReactMethod
     public void clearBackgroundTag(Callback callback) {
-        bgTag = null;
+        bgTags.clear();
         callback.invoke();
     }
 
+    @ReactMethod
+    public void drainBackgroundTags(int max, Callback callback) {
+        callback.invoke(null, bgTags.drain(max));
+    }
+
+    @ReactMethod
+    public void configureBackgroundTagQueue(ReadableMap options, Callback callback) {
+        int maxSize = options.hasKey("maxSize") ? options.getInt("maxSize") : BackgroundTagQueue.DEFAULT_MAX_SIZE;
+        String overflow = options.hasKey("overflow") ? options.getString("overflow") : BackgroundTagQueue.OVERFLOW_DROP_OLDEST;
+        if (maxSize <= 0) {
+            callback.invoke("configureBackgroundTagQueue fail: invalid maxSize");
+            return;
+        }
+        if (!BackgroundTagQueue.OVERFLOW_DROP_OLDEST.equals(overflow) && !BackgroundTagQueue.OVERFLOW_DROP_NEWEST.equals(overflow)) {
+            callback.invoke("configureBackgroundTagQueue fail: invalid overflow policy");
+            return;
+        }
+        bgTags.configure(maxSize, overflow);
+
+        WritableMap result = Arguments.createMap();
+        result.putInt("size", bgTags.size());
+        result.putDouble("dropped", bgTags.getDroppedCount());
+        callback.invoke(null, result);
+    }
+
     @ReactMethod
     private void registerTagEvent(ReadableMap options, Callback callback) {
         isReaderModeEnabled = options.getBoolean("isReaderModeEnabled");
         readerModeFlags = options.getInt("readerModeFlags");
         readerModeDelay = options.getInt("readerModeDelay");
+        tagDebouncer.setTtl(options.hasKey("uidDebounceMs") ? options.getInt("uidDebounceMs") : 0);
 
         Log.d(LOG_TAG, "registerTagEvent");
         isForegroundEnabled = true;
@@ -1097,10 +2986,12 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
         }
 
         intentFilters.clear();
+        scanLoop = null;
         isForegroundEnabled = false;
         isReaderModeEnabled = false;
         readerModeFlags = 0;
         readerModeDelay = 0;
+        tagDebouncer.setTtl(0);
 
         callback.invoke();
     }
@@ -1157,30 +3048,41 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
                         nfcAdapter.enableReaderMode(currentActivity, new NfcAdapter.ReaderCallback() {
                             @Override
                             public void onTagDiscovered(Tag tag) {
-                                synchronized (this) {
+                                if (scanLoop != null) {
+                                    runScanLoop(tag);
+                                    return;
+                                }
+
+                                Log.d(LOG_TAG, "readerMode onTagDiscovered");
+                                // connect the pending tech request first, the time from field entry to the
+                                // requestTechnology callback shouldn't include building the discovery event
+                                sessionLock.lock();
+                                try {
                                     manager.tag = tag;
-                                    Log.d(LOG_TAG, "readerMode onTagDiscovered");
-                                    WritableMap nfcTag;
-                                    // if the tag contains NDEF, we want to report the content
-                                    if (Arrays.asList(tag.getTechList()).contains(Ndef.class.getName())) {
-                                        Ndef ndef = Ndef.get(tag);
-                                        nfcTag = ndef2React(ndef, new NdefMessage[] { ndef.getCachedNdefMessage() });
-                                    } else {
-                                        nfcTag = tag2React(tag);
-                                    }
+                                    connectTechRequest(tag);
+                                } finally {
+                                    sessionLock.unlock();
+                                }
 
-                                    if (nfcTag != null) {
-                                        sendEvent("NfcManagerDiscoverTag", nfcTag);
-                                        if (techRequest!= null && !techRequest.isConnected()) {
-                                            boolean result = techRequest.connect(tag);
-                                            if (result) {
-                                                techRequest.invokePendingCallback(techRequest.getTechType());
-                                            } else {
-                                                // this indicates that we get a NFC tag, but none of the user required tech is matched
-                                                techRequest.invokePendingCallback(null);
-                                            }
-                                        }
-                                    }
+                                rememberDiscoveredNdef(tag);
+
+                                // drop repeated sightings before paying for the NDEF read and the bridge event
+                                if (tagDebouncer.shouldSuppress(tag.getId(), System.nanoTime())) {
+                                    metrics.increment(NfcMetrics.COUNTER_TAG_DEBOUNCED);
+                                    return;
+                                }
+
+                                WritableMap nfcTag;
+                                // if the tag contains NDEF, we want to report the content
+                                if (Arrays.asList(tag.getTechList()).contains(Ndef.class.getName())) {
+                                    Ndef ndef = Ndef.get(tag);
+                                    nfcTag = ndef2React(ndef, new NdefMessage[] { ndef.getCachedNdefMessage() });
+                                } else {
+                                    nfcTag = tag2React(tag);
+                                }
+
+                                if (nfcTag != null) {
+                                    sendDiscoverTag(nfcTag);
                                 }
                             }
                         }, readerModeFlags, readerModeExtras);
@@ -1229,6 +3131,14 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
                 .emit(eventName, params);
     }
 
+    private void sendDiscoverTag(WritableMap nfcTag) {
+        if (tagEventBatcher.isEnabled()) {
+            tagEventBatcher.offer(nfcTag);
+        } else {
+            sendEvent("NfcManagerDiscoverTag", nfcTag);
+        }
+    }
+
     private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -1273,13 +3183,20 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
     @Override
     public void onNewIntent(Intent intent) {
         Log.d(LOG_TAG, "onNewIntent " + intent);
-        WritableMap nfcTag = parseNfcIntent(intent);
+        final WritableMap nfcTag = parseNfcIntent(intent);
         if (nfcTag != null) {
             if (isForegroundEnabled) {
-                sendEvent("NfcManagerDiscoverTag", nfcTag);
+                sendDiscoverTag(nfcTag);
             } else {
-                sendEvent("NfcManagerDiscoverBackgroundTag", nfcTag);
-                bgTag = nfcTag;
+                // the queue serializes the event and appends it to its file, keep that off the main thread;
+                // queue it before sending, the event map is consumed by the bridge
+                bgTagExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        bgTags.offer(nfcTag);
+                        sendEvent("NfcManagerDiscoverBackgroundTag", nfcTag);
+                    }
+                });
             }
         }
     }
@@ -1299,31 +3216,28 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
         }
         // Parcelable[] messages = intent.getParcelableArrayExtra((NfcAdapter.EXTRA_NDEF_MESSAGES));
 
-        synchronized(this) {
+        rememberDiscoveredNdef(tag);
+
+        sessionLock.lock();
+        try {
             this.tag = tag;
-            if (writeNdefRequest != null) {
+            WriteNdefRequest writeRequest = writeNdefRequest.getAndSet(null);
+            if (writeRequest != null) {
                 writeNdef(
                         tag,
-                        writeNdefRequest
+                        writeRequest
                 );
-                writeNdefRequest = null;
 
                 // explicitly return null, to avoid extra detection
                 return null;
             } else if (techRequest != null) {
-                if (!techRequest.isConnected()) {
-                    boolean result = techRequest.connect(tag);
-                    if (result) {
-                        techRequest.invokePendingCallback(techRequest.getTechType());
-                    } else {
-                        // this indicates that we get a NFC tag, but none of the user required tech is matched
-                        techRequest.invokePendingCallback(null);
-                    }
-                }
+                connectTechRequest(tag);
 
                 // explicitly return null, to avoid extra detection
                 return null;
             }
+        } finally {
+            sessionLock.unlock();
         }
 
         Ndef ndef;
@@ -1350,49 +3264,55 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
         return parsed;
     }
 
-    private WritableMap tag2React(Tag tag) {
-        try {
-            JSONObject json = Util.tagToJSON(tag);
-            return JsonConvert.jsonToReact(json);
-        } catch (JSONException ex) {
-            return null;
+    /**
+     * Connect the pending tech request (if any and not connected yet) to the discovered tag and resolve
+     * requestTechnology, should be called with the session lock held.
+     */
+    private void connectTechRequest(Tag tag) {
+        // read once, cancelTechnologyRequest may clear it meanwhile
+        TagTechnologyRequest request = techRequest;
+        if (request == null || request.isConnected()) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean result = request.connect(tag);
+        metrics.recordLatency("techConnect", request.getTechType(), System.nanoTime() - start);
+        if (result) {
+            sessionState.compareAndSet(SessionState.ARMED, SessionState.CONNECTED);
+            request.invokePendingCallback(request.getTechType());
+        } else {
+            // this indicates that we get a NFC tag, but none of the user required tech is matched
+            request.invokePendingCallback(null);
         }
     }
 
-    private WritableMap ndef2React(Ndef ndef, Parcelable[] messages) {
-        try {
-            JSONObject json = buildNdefJSON(ndef, messages);
-            return JsonConvert.jsonToReact(json);
-        } catch (JSONException ex) {
-            return null;
-        }
+    private WritableMap tag2React(Tag tag) {
+        return Util.tagToReact(tag);
     }
 
-    JSONObject buildNdefJSON(Ndef ndef, Parcelable[] messages) {
-        JSONObject json = Util.ndefToJSON(ndef);
+    private WritableMap ndef2React(Ndef ndef, Parcelable[] messages) {
+        long start = System.nanoTime();
+        boolean base64 = isBase64Encoding();
+        WritableMap parsed = Util.ndefToReact(ndef, base64, ndefDecoding);
 
         // ndef is null for peer-to-peer
         // ndef and messages are null for ndef format-able
         if (ndef == null && messages != null) {
-            try {
-
-                if (messages.length > 0) {
-                    NdefMessage message = (NdefMessage) messages[0];
-                    json.put("ndefMessage", Util.messageToJSON(message));
-                    // guessing type, would prefer a more definitive way to determine type
-                    json.put("type", "NDEF");
-                }
-
-                if (messages.length > 1) {
-                    Log.d(LOG_TAG, "Expected one ndefMessage but found " + messages.length);
+            if (messages.length > 0) {
+                NdefMessage message = (NdefMessage) messages[0];
+                if (message != null) {
+                    parsed.putArray("ndefMessage", Util.messageToReact(message, base64, ndefDecoding));
                 }
+                // guessing type, would prefer a more definitive way to determine type
+                parsed.putString("type", "NDEF");
+            }
 
-            } catch (JSONException e) {
-                // shouldn't happen
-                Log.e(Util.TAG, "Failed to convert ndefMessage into json", e);
+            if (messages.length > 1) {
+                Log.d(LOG_TAG, "Expected one ndefMessage but found " + messages.length);
             }
         }
-        return json;
+        metrics.recordLatency("ndef2React", null, System.nanoTime() - start);
+        return parsed;
     }
 
     private void writeNdef(Tag tag, WriteNdefRequest request) {
@@ -1428,37 +3348,68 @@ class NfcManager extends ReactContextBaseJavaModule implements ActivityEventList
                     callback.invoke(ERR_API_NOT_SUPPORT);
                 } else if (!ndef.isWritable()) {
                     callback.invoke("tag is not writeable");
-                } else if (ndef.getMaxSize() < message.toByteArray().length) {
+                } else if (ndef.getMaxSize() < message.getByteArrayLength()) {
                     callback.invoke("tag size is not enough");
                 } else {
                     Log.d(LOG_TAG, "ready to writeNdef, seriously");
                     ndef.connect();
+                    frameTrace.begin(FrameTrace.OP_NDEF_WRITE, "Ndef", frameTrace.isEnabled() ? message.toByteArray() : null);
                     ndef.writeNdefMessage(message);
+                    frameTrace.end(FrameTrace.EMPTY_RESPONSE);
                     callback.invoke();
                 }
             } catch (Exception ex) {
+                frameTrace.fail(ex);
                 callback.invoke(ex.toString());
             }
         }
     }
 
-    private static byte[] rnArrayToBytes(ReadableArray rArray) {
-        byte[] bytes = new byte[rArray.size()];
-        for (int i = 0; i < rArray.size(); i++) {
-            bytes[i] = (byte)(rArray.getInt(i) & 0xff);
+    private boolean isBase64Encoding() {
+        return BYTE_ENCODING_BASE64.equals(byteEncoding);
+    }
+
+    /**
+     * Convert the bytes into the current byte encoding, which is either a WritableArray or a base64 String.
+     */
+    private Object bytesToRn(byte[] bytes) {
+        if (isBase64Encoding()) {
+            return Base64.encodeToString(bytes, Base64.NO_WRAP);
+        }
+        return Util.byteArrayToReact(bytes);
+    }
+
+    private void putBytes(WritableMap map, String key, byte[] bytes) {
+        if (isBase64Encoding()) {
+            map.putString(key, Base64.encodeToString(bytes, Base64.NO_WRAP));
+        } else {
+            map.putArray(key, Util.byteArrayToReact(bytes));
+        }
+    }
+
+    private void pushBytesToRnArray(WritableArray value, byte[] bytes) {
+        if (isBase64Encoding()) {
+            value.pushString(Base64.encodeToString(bytes, Base64.NO_WRAP));
+        } else {
+            value.pushArray(Util.byteArrayToReact(bytes));
         }
-        return bytes;
     }
 
-    private static WritableArray bytesToRnArray(byte[] bytes) {
-        return appendBytesToRnArray(Arguments.createArray(), bytes);
+    /**
+     * Accept either an array of numbers or a base64 encoded String from js, regardless of the current byte encoding.
+     */
+    private static byte[] rnToBytes(Dynamic value) {
+        if (value.getType() == ReadableType.String) {
+            return Base64.decode(value.asString(), Base64.DEFAULT);
+        }
+        return Util.rnArrayToBytes(value.asArray());
     }
 
-    private static WritableArray appendBytesToRnArray(WritableArray value, byte[] bytes) {
-        for (byte aByte : bytes) {
-            value.pushInt((aByte & 0xFF));
+    private static byte[] rnToBytes(ReadableArray array, int index) {
+        if (array.getType(index) == ReadableType.String) {
+            return Base64.decode(array.getString(index), Base64.DEFAULT);
         }
-        return value;
+        return Util.rnArrayToBytes(array.getArray(index));
     }
 }
 
@@ -0,0 +1,105 @@
+package community.revteltech.nfc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per operation (and per tech type) latency histograms plus failure counters,
+ * cheap enough to stay enabled in production.
+ */
+class NfcMetrics {
+    static final String COUNTER_TAG_LOST = "tagLost";
+    static final String COUNTER_AUTH_FAIL = "authFail";
+    static final String COUNTER_MULTI_REQ = "multiRequestRejected";
+    static final String COUNTER_TAG_DEBOUNCED = "tagDebounced";
+
+    private static class Operation {
+        final LatencyHistogram all = new LatencyHistogram();
+        final ConcurrentMap<String, LatencyHistogram> byTech = new ConcurrentHashMap<>();
+    }
+
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param techType the connected tech when the operation ran, or null
+     */
+    void recordLatency(String name, String techType, long nanos) {
+        Operation operation = operations.get(name);
+        if (operation == null) {
+            operations.putIfAbsent(name, new Operation());
+            operation = operations.get(name);
+        }
+        operation.all.record(nanos);
+
+        if (techType != null) {
+            LatencyHistogram histogram = operation.byTech.get(techType);
+            if (histogram == null) {
+                operation.byTech.putIfAbsent(techType, new LatencyHistogram());
+                histogram = operation.byTech.get(techType);
+            }
+            histogram.record(nanos);
+        }
+    }
+
+    void increment(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new AtomicLong());
+            counter = counters.get(name);
+        }
+        counter.incrementAndGet();
+    }
+
+    void reset() {
+        operations.clear();
+        counters.clear();
+    }
+
+    WritableMap toReact() {
+        WritableMap result = Arguments.createMap();
+
+        WritableMap operationsMap = Arguments.createMap();
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            Operation operation = entry.getValue();
+            WritableMap operationMap = histogramToReact(operation.all);
+            if (!operation.byTech.isEmpty()) {
+                WritableMap byTechMap = Arguments.createMap();
+                for (Map.Entry<String, LatencyHistogram> techEntry : operation.byTech.entrySet()) {
+                    byTechMap.putMap(techEntry.getKey(), histogramToReact(techEntry.getValue()));
+                }
+                operationMap.putMap("byTech", byTechMap);
+            }
+            operationsMap.putMap(entry.getKey(), operationMap);
+        }
+        result.putMap("operations", operationsMap);
+
+        WritableMap countersMap = Arguments.createMap();
+        // always report the well known counters, even when they are still 0
+        countersMap.putDouble(COUNTER_TAG_LOST, 0);
+        countersMap.putDouble(COUNTER_AUTH_FAIL, 0);
+        countersMap.putDouble(COUNTER_MULTI_REQ, 0);
+        countersMap.putDouble(COUNTER_TAG_DEBOUNCED, 0);
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            countersMap.putDouble(entry.getKey(), entry.getValue().get());
+        }
+        result.putMap("counters", countersMap);
+        return result;
+    }
+
+    private static WritableMap histogramToReact(LatencyHistogram histogram) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", histogram.getCount());
+        map.putDouble("meanMs", histogram.getMeanMicros() / 1000);
+        map.putDouble("p50Ms", histogram.getPercentileMicros(0.50) / 1000.0);
+        map.putDouble("p95Ms", histogram.getPercentileMicros(0.95) / 1000.0);
+        map.putDouble("p99Ms", histogram.getPercentileMicros(0.99) / 1000.0);
+        map.putDouble("maxMs", histogram.getMaxMicros() / 1000.0);
+        return map;
+    }
+}
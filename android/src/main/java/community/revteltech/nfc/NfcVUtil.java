@@ -0,0 +1,142 @@
+package community.revteltech.nfc;
+
+import android.nfc.TagLostException;
+
+import java.io.IOException;
+
+/**
+ * ISO 15693 block commands, addressed to the tag's UID at high data rate, sent through the TagTransport.
+ */
+class NfcVUtil {
+    static final byte FLAG_HIGH_DATA_RATE = 0x02;
+    static final byte FLAG_ADDRESSED = 0x20;
+    static final byte FLAG_ERROR = 0x01;
+
+    static final byte CMD_READ_SINGLE_BLOCK = 0x20;
+    static final byte CMD_WRITE_SINGLE_BLOCK = 0x21;
+    static final byte CMD_READ_MULTIPLE_BLOCKS = 0x23;
+    static final byte CMD_GET_SYSTEM_INFO = 0x2B;
+    static final byte CMD_EXT_WRITE_SINGLE_BLOCK = 0x31;
+    static final byte CMD_EXT_READ_MULTIPLE_BLOCKS = 0x33;
+
+    // the most the common chips (ICODE SLIX, ST25DV, Tag-it) accept in one Read Multiple Blocks
+    static final int MAX_BLOCKS_PER_READ = 32;
+    private static final int UID_LENGTH = 8;
+    private static final int INFO_FLAG_DSFID = 0x01;
+    private static final int INFO_FLAG_AFI = 0x02;
+    private static final int INFO_FLAG_MEMORY_SIZE = 0x04;
+
+    /**
+     * The block size from Get System Information, or from a Read Single Block if the tag
+     * doesn't support that optional command or doesn't report its memory size.
+     */
+    static int getBlockSize(TagTransport transport, byte[] uid, int block) throws IOException {
+        byte[] info = null;
+        try {
+            info = transceive(transport, request(CMD_GET_SYSTEM_INFO, uid, 0));
+        } catch (TagLostException ex) {
+            throw ex;
+        } catch (IOException ex) {
+            // an error response, or no answer at all from some tags
+        }
+        int infoFlags = info != null && info.length > 1 ? info[1] & 0xff : 0;
+        if ((infoFlags & INFO_FLAG_MEMORY_SIZE) != 0) {
+            int offset = 2 + UID_LENGTH;
+            if ((infoFlags & INFO_FLAG_DSFID) != 0) {
+                offset++;
+            }
+            if ((infoFlags & INFO_FLAG_AFI) != 0) {
+                offset++;
+            }
+            if (info.length > offset + 1) {
+                return (info[offset + 1] & 0x1f) + 1;
+            }
+        }
+
+        byte[] command = request(CMD_READ_SINGLE_BLOCK, uid, 1);
+        command[command.length - 1] = (byte) block;
+        return transceive(transport, command).length - 1;
+    }
+
+    /**
+     * Read count blocks from first into one buffer, with Read Multiple Blocks sized by the chip
+     * and the transceive length (the extended command once block numbers don't fit in a byte).
+     */
+    static byte[] readBlocks(TagTransport transport, byte[] uid, int first, int count, int blockSize) throws IOException {
+        byte[] result = new byte[count * blockSize];
+        int blocksPerFrame = Math.max(1, Math.min(MAX_BLOCKS_PER_READ, (transport.getMaxTransceiveLength() - 1) / blockSize));
+        boolean extended = first + count > 0x100;
+        byte[] command = extended
+                ? request(CMD_EXT_READ_MULTIPLE_BLOCKS, uid, 4)
+                : request(CMD_READ_MULTIPLE_BLOCKS, uid, 2);
+
+        for (int done = 0; done < count; done += blocksPerFrame) {
+            int block = first + done;
+            int blocks = Math.min(blocksPerFrame, count - done);
+            if (extended) {
+                putShort(command, command.length - 4, block);
+                putShort(command, command.length - 2, blocks - 1);
+            } else {
+                command[command.length - 2] = (byte) block;
+                command[command.length - 1] = (byte) (blocks - 1);
+            }
+            byte[] response = transceive(transport, command);
+            if (response.length != 1 + blocks * blockSize) {
+                throw new IOException("unexpected response length " + response.length + " reading block " + block);
+            }
+            System.arraycopy(response, 1, result, done * blockSize, blocks * blockSize);
+        }
+        return result;
+    }
+
+    /**
+     * Write the data (a whole number of blocks) from first, one Write Single Block per block
+     * since Write Multiple Blocks is optional and rarely implemented.
+     */
+    static void writeBlocks(TagTransport transport, byte[] uid, int first, byte[] data, int blockSize) throws IOException {
+        int count = data.length / blockSize;
+        boolean extended = first + count > 0x100;
+        byte[] command = extended
+                ? request(CMD_EXT_WRITE_SINGLE_BLOCK, uid, 2 + blockSize)
+                : request(CMD_WRITE_SINGLE_BLOCK, uid, 1 + blockSize);
+        int dataOffset = command.length - blockSize;
+
+        for (int i = 0; i < count; i++) {
+            if (extended) {
+                putShort(command, dataOffset - 2, first + i);
+            } else {
+                command[dataOffset - 1] = (byte) (first + i);
+            }
+            System.arraycopy(data, i * blockSize, command, dataOffset, blockSize);
+            transceive(transport, command);
+        }
+    }
+
+    /**
+     * flags, command code and the UID (as Tag.getId() returns it, LSB first), then room for the parameters
+     */
+    private static byte[] request(byte code, byte[] uid, int parameterLength) {
+        byte[] command = new byte[2 + UID_LENGTH + parameterLength];
+        command[0] = FLAG_HIGH_DATA_RATE | FLAG_ADDRESSED;
+        command[1] = code;
+        System.arraycopy(uid, 0, command, 2, UID_LENGTH);
+        return command;
+    }
+
+    private static void putShort(byte[] command, int offset, int value) {
+        // ISO 15693 is little endian
+        command[offset] = (byte) value;
+        command[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static byte[] transceive(TagTransport transport, byte[] command) throws IOException {
+        byte[] response = transport.transceive(command);
+        if (response == null || response.length == 0) {
+            throw new IOException("no response");
+        }
+        if ((response[0] & FLAG_ERROR) != 0) {
+            throw new IOException(String.format("error code 0x%02X", response.length > 1 ? response[1] & 0xff : 0));
+        }
+        return response;
+    }
+}
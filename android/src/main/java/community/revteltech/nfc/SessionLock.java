@@ -0,0 +1,60 @@
+package community.revteltech.nfc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Guards the session state (tech request, pending writes, scan loop) of NfcManager,
+ * and keeps track of how often and how long callers had to wait for it.
+ */
+class SessionLock {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong contentions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    void lock() {
+        acquisitions.incrementAndGet();
+        if (lock.tryLock()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        lock.lock();
+        long waited = System.nanoTime() - start;
+        contentions.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        long max = maxWaitNanos.get();
+        while (waited > max && !maxWaitNanos.compareAndSet(max, waited)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    long getContentions() {
+        return contentions.get();
+    }
+
+    long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    void resetStats() {
+        acquisitions.set(0);
+        contentions.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
+    }
+}
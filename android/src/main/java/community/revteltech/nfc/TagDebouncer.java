@@ -0,0 +1,90 @@
+package community.revteltech.nfc;
+
+import java.util.Arrays;
+
+/**
+ * Suppress repeated sightings of the same UID within a time window (reader mode re-fires
+ * onTagDiscovered for a card bouncing at the edge of the field).
+ *
+ * A small fixed size open addressing table keyed on the UID, so a sighting costs a hash and a
+ * few array reads and never allocates once the table has seen a UID. Each sighting restarts the window,
+ * so a resting card stays suppressed until it has been away for ttl.
+ */
+class TagDebouncer {
+    static final int DEFAULT_CAPACITY = 64; // power of 2
+
+    private final byte[][] ids;
+    private final long[] lastSeen;
+    private final int mask;
+    private volatile long ttlNanos = 0;
+
+    TagDebouncer(int capacity) {
+        ids = new byte[capacity][];
+        lastSeen = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @param ttlMs 0 disables the debounce and forgets the UIDs seen so far
+     */
+    synchronized void setTtl(int ttlMs) {
+        ttlNanos = ttlMs * 1000000L;
+        if (ttlNanos == 0) {
+            Arrays.fill(ids, null);
+        }
+    }
+
+    boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    /**
+     * @return true if the UID was already seen within the window, i.e. the event should be dropped
+     */
+    synchronized boolean shouldSuppress(byte[] id, long nowNanos) {
+        if (ttlNanos == 0 || id == null || id.length == 0) {
+            return false;
+        }
+
+        int reusable = -1;
+        int oldest = -1;
+        int slot = hash(id) & mask;
+        for (int probe = 0; probe < ids.length; probe++, slot = (slot + 1) & mask) {
+            byte[] stored = ids[slot];
+            if (stored == null) {
+                if (reusable < 0) {
+                    reusable = slot;
+                }
+                break;
+            }
+            boolean expired = nowNanos - lastSeen[slot] >= ttlNanos;
+            if (Arrays.equals(stored, id)) {
+                lastSeen[slot] = nowNanos;
+                return !expired;
+            }
+            if (expired && reusable < 0) {
+                reusable = slot;
+            }
+            if (oldest < 0 || lastSeen[slot] < lastSeen[oldest]) {
+                oldest = slot;
+            }
+        }
+
+        // full of live UIDs: the least recently seen one is forgotten
+        int target = reusable >= 0 ? reusable : oldest;
+        byte[] stored = ids[target];
+        if (stored == null || stored.length != id.length) {
+            stored = new byte[id.length];
+            ids[target] = stored;
+        }
+        System.arraycopy(id, 0, stored, 0, id.length);
+        lastSeen[target] = nowNanos;
+        return false;
+    }
+
+    private static int hash(byte[] id) {
+        int h = Arrays.hashCode(id);
+        // spread the bits, UIDs often share their manufacturer prefix
+        return h ^ (h >>> 16);
+    }
+}
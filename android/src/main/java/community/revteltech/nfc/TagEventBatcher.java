@@ -0,0 +1,147 @@
+package community.revteltech.nfc;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Delivery stage for the discovery events: instead of one bridge emission per tag, the events are
+ * queued and emitted together as one NfcManagerDiscoverTagBatch per interval.
+ *
+ * The queue is a preallocated ring with a fixed capacity, so a burst of tags never grows it,
+ * once it's full the oldest (or the newest) event is dropped and counted.
+ */
+class TagEventBatcher {
+    static final int DEFAULT_INTERVAL_MS = 16; // about one frame
+    static final int DEFAULT_MAX_QUEUED = 64;
+    static final String OVERFLOW_DROP_OLDEST = "dropOldest";
+    static final String OVERFLOW_DROP_NEWEST = "dropNewest";
+
+    interface Sink {
+        void emitBatch(WritableMap batch);
+    }
+
+    private final Sink sink;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private volatile boolean enabled = false;
+    private int intervalMs = DEFAULT_INTERVAL_MS;
+    private boolean dropNewest = false;
+    private WritableMap[] queue = new WritableMap[DEFAULT_MAX_QUEUED];
+    private int head = 0;
+    private int size = 0;
+    private boolean flushScheduled = false;
+
+    private long queuedCount = 0;
+    private long droppedCount = 0;
+    private long batchCount = 0;
+    private long droppedSinceLastBatch = 0;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    TagEventBatcher(Sink sink) {
+        this.sink = sink;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Pending events are flushed first, so changing the settings (or disabling it) never loses them.
+     */
+    void configure(boolean enabled, int intervalMs, int maxQueued, String overflow) {
+        WritableMap batch;
+        synchronized (this) {
+            batch = takeBatch();
+            this.enabled = enabled;
+            this.intervalMs = intervalMs;
+            this.dropNewest = OVERFLOW_DROP_NEWEST.equals(overflow);
+            if (queue.length != maxQueued) {
+                queue = new WritableMap[maxQueued];
+                head = 0;
+            }
+        }
+        emit(batch);
+    }
+
+    synchronized void offer(WritableMap event) {
+        if (size == queue.length) {
+            droppedCount++;
+            droppedSinceLastBatch++;
+            if (dropNewest) {
+                return;
+            }
+            queue[head] = null;
+            head = (head + 1) % queue.length;
+            size--;
+        }
+        queue[(head + size) % queue.length] = event;
+        size++;
+        queuedCount++;
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushTask, intervalMs);
+        }
+    }
+
+    void flush() {
+        WritableMap batch;
+        synchronized (this) {
+            batch = takeBatch();
+        }
+        emit(batch);
+    }
+
+    private WritableMap takeBatch() {
+        flushScheduled = false;
+        handler.removeCallbacks(flushTask);
+        if (size == 0) {
+            return null;
+        }
+
+        WritableArray tags = Arguments.createArray();
+        while (size > 0) {
+            tags.pushMap(queue[head]);
+            queue[head] = null;
+            head = (head + 1) % queue.length;
+            size--;
+        }
+        WritableMap batch = Arguments.createMap();
+        batch.putArray("tags", tags);
+        batch.putDouble("dropped", droppedSinceLastBatch);
+        droppedSinceLastBatch = 0;
+        batchCount++;
+        return batch;
+    }
+
+    private void emit(WritableMap batch) {
+        // outside of the lock, offer() is called from the NFC binder thread
+        if (batch != null) {
+            sink.emitBatch(batch);
+        }
+    }
+
+    synchronized WritableMap statsToReact() {
+        WritableMap stats = Arguments.createMap();
+        stats.putBoolean("enabled", enabled);
+        stats.putInt("pending", size);
+        stats.putDouble("queued", queuedCount);
+        stats.putDouble("dropped", droppedCount);
+        stats.putDouble("batches", batchCount);
+        return stats;
+    }
+
+    synchronized void resetStats() {
+        queuedCount = 0;
+        droppedCount = 0;
+        batchCount = 0;
+    }
+}
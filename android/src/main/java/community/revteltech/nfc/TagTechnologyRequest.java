@@ -14,12 +14,17 @@ import android.nfc.tech.IsoDep;
 import android.util.Log;
 import com.facebook.react.bridge.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 class TagTechnologyRequest {
     static String LOG_TAG = "NfcManager-tech";
+    static final String TECH_PACKAGE = "android.nfc.tech.";
     Tag mTag;
-    TagTechnology mTech;
+    // volatile since cancelTechnologyRequest closes it from another thread to interrupt in-flight I/O
+    volatile TagTechnology mTech;
     String mTechType; // the actual connected type
+    volatile TagTransport mTransport; // null if the connected tech can't transceive
     ArrayList<Object> mTechTypes; // the desired types
     Callback mJsCallback;
 
@@ -32,14 +37,14 @@ class TagTechnologyRequest {
         return mTechType;
     }
 
-    void invokePendingCallbackWithError(String err) {
+    synchronized void invokePendingCallbackWithError(String err) {
         if (mJsCallback != null) {
             mJsCallback.invoke(err);
             mJsCallback = null;
         }
     }
 
-    void invokePendingCallback(String connectedTech) {
+    synchronized void invokePendingCallback(String connectedTech) {
         if (mJsCallback != null) {
             mJsCallback.invoke(null, connectedTech);
             mJsCallback = null;
@@ -50,6 +55,10 @@ class TagTechnologyRequest {
         return mTech;
     }
 
+    TagTransport getTransport() {
+        return mTransport;
+    }
+
     Tag getTagHandle() {
         return mTag;
     }
@@ -65,9 +74,14 @@ class TagTechnologyRequest {
         }
 
         mTag = tag;
+        // only try the techs the tag actually advertises, keeping the order the user asked for
+        List<String> tagTechs = Arrays.asList(tag.getTechList());
 
         for (int i = 0; i < mTechTypes.size(); i++) {
             String techType = (String)mTechTypes.get(i);
+            if (!tagTechs.contains(TECH_PACKAGE + techType)) {
+                continue;
+            }
 
             switch (techType) {
                 case "Ndef":
@@ -107,6 +121,7 @@ class TagTechnologyRequest {
                 Log.d(LOG_TAG, "connect to " + techType);
                 mTech.connect();
                 mTechType = techType;
+                mTransport = TechTransport.wrap(techType, mTech);
                 return true;
             } catch (Exception ex) {
                 Log.d(LOG_TAG, "fail to connect tech");
@@ -116,13 +131,15 @@ class TagTechnologyRequest {
         // not connected, restore to default
         mTech = null;
         mTechType = null;
+        mTransport = null;
 
         return false;
     }
 
     void close() {
         try {
-            mTech.close();
+            TagTechnology tech = mTech;
+            tech.close();
         } catch (Exception ex) {
             Log.d(LOG_TAG, "fail to close tech");
         }
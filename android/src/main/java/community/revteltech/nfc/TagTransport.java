@@ -0,0 +1,24 @@
+package community.revteltech.nfc;
+
+import java.io.IOException;
+
+/**
+ * The frame level link between the module and a connected tag.
+ * On a device this wraps the android.nfc.tech handles (see TechTransport),
+ * the benchmark module plugs simulated tags in here so the raw I/O paths can be exercised without a radio.
+ */
+interface TagTransport {
+    /**
+     * @return the tech this transport talks through, e.g. "NfcA" or "IsoDep"
+     */
+    String getTechType();
+
+    byte[] transceive(byte[] data) throws IOException;
+
+    int getMaxTransceiveLength();
+
+    /**
+     * @return false if the underlying tech doesn't support changing the timeout
+     */
+    boolean setTimeout(int timeout);
+}
@@ -0,0 +1,111 @@
+package community.revteltech.nfc;
+
+import android.nfc.tech.IsoDep;
+import android.nfc.tech.MifareClassic;
+import android.nfc.tech.MifareUltralight;
+import android.nfc.tech.NfcA;
+import android.nfc.tech.NfcB;
+import android.nfc.tech.NfcF;
+import android.nfc.tech.NfcV;
+import android.nfc.tech.TagTechnology;
+
+import java.io.IOException;
+
+/**
+ * TagTransport backed by a connected android.nfc.tech handle.
+ * TagTechnology is the base class for each tech (ex, NfcA, NfcB, IsoDep ...)
+ * but it doesn't provide transceive in its interface, so we need to explicitly cast it.
+ */
+class TechTransport implements TagTransport {
+    private final String mTechType;
+    private final TagTechnology mTech;
+
+    private TechTransport(String techType, TagTechnology tech) {
+        mTechType = techType;
+        mTech = tech;
+    }
+
+    /**
+     * @return the transport, or null if the tech doesn't support transceive (Ndef, NdefFormatable)
+     */
+    static TechTransport wrap(String techType, TagTechnology tech) {
+        switch (techType) {
+            case "NfcA":
+            case "NfcB":
+            case "NfcF":
+            case "NfcV":
+            case "IsoDep":
+            case "MifareClassic":
+            case "MifareUltralight":
+                return new TechTransport(techType, tech);
+        }
+        return null;
+    }
+
+    @Override
+    public String getTechType() {
+        return mTechType;
+    }
+
+    @Override
+    public byte[] transceive(byte[] data) throws IOException {
+        switch (mTechType) {
+            case "NfcA":
+                return ((NfcA) mTech).transceive(data);
+            case "NfcB":
+                return ((NfcB) mTech).transceive(data);
+            case "NfcF":
+                return ((NfcF) mTech).transceive(data);
+            case "NfcV":
+                return ((NfcV) mTech).transceive(data);
+            case "IsoDep":
+                return ((IsoDep) mTech).transceive(data);
+            case "MifareClassic":
+                return ((MifareClassic) mTech).transceive(data);
+            default:
+                return ((MifareUltralight) mTech).transceive(data);
+        }
+    }
+
+    @Override
+    public int getMaxTransceiveLength() {
+        switch (mTechType) {
+            case "NfcA":
+                return ((NfcA) mTech).getMaxTransceiveLength();
+            case "NfcB":
+                return ((NfcB) mTech).getMaxTransceiveLength();
+            case "NfcF":
+                return ((NfcF) mTech).getMaxTransceiveLength();
+            case "NfcV":
+                return ((NfcV) mTech).getMaxTransceiveLength();
+            case "IsoDep":
+                return ((IsoDep) mTech).getMaxTransceiveLength();
+            case "MifareClassic":
+                return ((MifareClassic) mTech).getMaxTransceiveLength();
+            default:
+                return ((MifareUltralight) mTech).getMaxTransceiveLength();
+        }
+    }
+
+    @Override
+    public boolean setTimeout(int timeout) {
+        switch (mTechType) {
+            case "NfcA":
+                ((NfcA) mTech).setTimeout(timeout);
+                return true;
+            case "NfcF":
+                ((NfcF) mTech).setTimeout(timeout);
+                return true;
+            case "IsoDep":
+                ((IsoDep) mTech).setTimeout(timeout);
+                return true;
+            case "MifareClassic":
+                ((MifareClassic) mTech).setTimeout(timeout);
+                return true;
+            case "MifareUltralight":
+                ((MifareUltralight) mTech).setTimeout(timeout);
+                return true;
+        }
+        return false;
+    }
+}
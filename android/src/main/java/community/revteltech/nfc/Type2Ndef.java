@@ -0,0 +1,181 @@
+package community.revteltech.nfc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal NDEF updates for NFC Forum Type 2 tags (Ultralight / NTAG): the new NDEF TLV is laid
+ * over the current data area and only the pages which differ are written.
+ *
+ * The writes are ordered so a tear (tag removed mid-update) never leaves a valid length over
+ * mixed content: the first length byte is zeroed first (an empty message, in one page write),
+ * then the changed pages are written, and the real length goes in last, as the Type 2 Tag spec
+ * suggests for updates. A 3 byte length spanning two pages is completed before its first page.
+ */
+class Type2Ndef {
+    static final int CC_PAGE = 3;
+    static final int DATA_START_PAGE = 4;
+    static final byte CC_MAGIC = (byte) 0xE1;
+
+    private static final int PAGE_SIZE = UltralightUtil.PAGE_SIZE;
+    private static final int TLV_NULL = 0x00;
+    private static final int TLV_NDEF = 0x03;
+    private static final int TLV_TERMINATOR = 0xFE;
+
+    static class PageWrite {
+        final int page;
+        final byte[] data;
+
+        PageWrite(int page, byte[] data) {
+            this.page = page;
+            this.data = data;
+        }
+    }
+
+    static class Plan {
+        final List<PageWrite> writes = new ArrayList<>();
+        // the pages a full rewrite of the TLV would have written
+        int fullWritePages;
+    }
+
+    /**
+     * @param cc the capability container page
+     * @return the size of the data area in bytes
+     */
+    static int getDataAreaSize(byte[] cc) throws IOException {
+        if (cc[0] != CC_MAGIC) {
+            throw new IOException("not NDEF formatted");
+        }
+        if ((cc[3] & 0x0f) != 0) {
+            throw new IOException("tag is not writeable");
+        }
+        return (cc[2] & 0xff) * 8;
+    }
+
+    /**
+     * @return the offset of the NDEF TLV in the data area, or -1
+     */
+    static int findNdefTlv(byte[] data) {
+        int offset = 0;
+        while (offset < data.length) {
+            int type = data[offset] & 0xff;
+            if (type == TLV_NDEF) {
+                return offset;
+            }
+            if (type == TLV_TERMINATOR) {
+                return -1;
+            }
+            if (type == TLV_NULL) {
+                offset++;
+                continue;
+            }
+            // lock / memory control or proprietary TLV, skip it
+            if (offset + 1 >= data.length) {
+                return -1;
+            }
+            int length = data[offset + 1] & 0xff;
+            int lengthSize = 1;
+            if (length == 0xff) {
+                if (offset + 3 >= data.length) {
+                    return -1;
+                }
+                length = (data[offset + 2] & 0xff) << 8 | (data[offset + 3] & 0xff);
+                lengthSize = 3;
+            }
+            offset += 1 + lengthSize + length;
+        }
+        return -1;
+    }
+
+    /**
+     * @param data the current data area (from page 4)
+     * @param message the new NDEF message
+     */
+    static Plan plan(byte[] data, byte[] message) throws IOException {
+        int tlvOffset = findNdefTlv(data);
+        if (tlvOffset < 0) {
+            throw new IOException("no NDEF TLV found");
+        }
+
+        int lengthSize = message.length < 0xff ? 1 : 3;
+        int tlvLength = 1 + lengthSize + message.length;
+        if (tlvOffset + tlvLength > data.length) {
+            throw new IOException("tag size is not enough");
+        }
+        byte[] updated = data.clone();
+        int pos = tlvOffset;
+        updated[pos++] = TLV_NDEF;
+        if (lengthSize == 1) {
+            updated[pos++] = (byte) message.length;
+        } else {
+            updated[pos++] = (byte) 0xff;
+            updated[pos++] = (byte) (message.length >>> 8);
+            updated[pos++] = (byte) message.length;
+        }
+        System.arraycopy(message, 0, updated, pos, message.length);
+        pos += message.length;
+        // no room for the terminator is fine, the TLV then ends with the data area
+        if (pos < updated.length) {
+            updated[pos++] = (byte) TLV_TERMINATOR;
+        }
+
+        Plan plan = new Plan();
+        plan.fullWritePages = (pos - 1) / PAGE_SIZE - tlvOffset / PAGE_SIZE + 1;
+
+        // the pages holding the length field, the rest of the value of the TLV is only trusted once it's set
+        int lengthStart = tlvOffset + 1;
+        int lengthEnd = lengthStart + lengthSize; // exclusive
+        int firstLengthIndex = lengthStart / PAGE_SIZE;
+        int lastLengthIndex = (lengthEnd - 1) / PAGE_SIZE;
+
+        List<Integer> changed = new ArrayList<>();
+        for (int index = tlvOffset / PAGE_SIZE; index <= (pos - 1) / PAGE_SIZE; index++) {
+            if ((index < firstLengthIndex || index > lastLengthIndex) && !pageEquals(data, updated, index)) {
+                changed.add(index);
+            }
+        }
+
+        boolean lengthChanged = false;
+        for (int index = firstLengthIndex; index <= lastLengthIndex; index++) {
+            lengthChanged |= !pageEquals(data, updated, index);
+        }
+        if (changed.isEmpty() && !lengthChanged) {
+            return plan;
+        }
+
+        // 1. invalidate the message with one page write: a first length byte of 0 is a complete
+        // length in the 1 byte form, whatever follows it (the 3 byte form may span two pages)
+        byte[] invalidated = updated.clone();
+        invalidated[lengthStart] = 0;
+        plan.writes.add(new PageWrite(DATA_START_PAGE + firstLengthIndex, page(invalidated, firstLengthIndex)));
+        // 2. the changed content
+        for (int index : changed) {
+            plan.writes.add(new PageWrite(DATA_START_PAGE + index, page(updated, index)));
+        }
+        // 3. the real length, the page with the first length byte (0xFF marker of the 3 byte form) last,
+        // so the message stays empty until the whole length is in place
+        for (int index = lastLengthIndex; index > firstLengthIndex; index--) {
+            if (!pageEquals(data, updated, index)) {
+                plan.writes.add(new PageWrite(DATA_START_PAGE + index, page(updated, index)));
+            }
+        }
+        plan.writes.add(new PageWrite(DATA_START_PAGE + firstLengthIndex, page(updated, firstLengthIndex)));
+        return plan;
+    }
+
+    private static boolean pageEquals(byte[] a, byte[] b, int index) {
+        for (int i = index * PAGE_SIZE; i < (index + 1) * PAGE_SIZE; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] page(byte[] data, int index) {
+        byte[] page = new byte[PAGE_SIZE];
+        System.arraycopy(data, index * PAGE_SIZE, page, 0, PAGE_SIZE);
+        return page;
+    }
+}
@@ -0,0 +1,84 @@
+package community.revteltech.nfc;
+
+import android.nfc.TagLostException;
+
+import java.io.IOException;
+
+/**
+ * Raw page commands for MIFARE Ultralight / NTAG, sent through the TagTransport
+ * so they work the same for a MifareUltralight or an NfcA connection.
+ */
+class UltralightUtil {
+    static final int PAGE_SIZE = 4;
+    static final byte CMD_READ = 0x30;
+    static final byte CMD_FAST_READ = 0x3A;
+    static final byte CMD_WRITE = (byte) 0xA2;
+    static final byte ACK = 0x0A;
+
+    /**
+     * Read the pages start..end (inclusive) with FAST_READ, in as few frames as the transceive length allows.
+     *
+     * @return null if the chip doesn't support FAST_READ (NAK or no answer), the chip is then
+     * in IDLE state and has to be reconnected before the next command
+     */
+    static byte[] fastReadRange(TagTransport transport, int startPage, int endPage) throws IOException {
+        byte[] result = new byte[(endPage - startPage + 1) * PAGE_SIZE];
+        int pagesPerFrame = Math.max(1, transport.getMaxTransceiveLength() / PAGE_SIZE);
+        byte[] command = new byte[3];
+        command[0] = CMD_FAST_READ;
+        for (int page = startPage; page <= endPage; page += pagesPerFrame) {
+            int last = Math.min(page + pagesPerFrame - 1, endPage);
+            command[1] = (byte) page;
+            command[2] = (byte) last;
+            byte[] response;
+            try {
+                response = transport.transceive(command);
+            } catch (TagLostException ex) {
+                throw ex;
+            } catch (IOException ex) {
+                return null;
+            }
+            int length = (last - page + 1) * PAGE_SIZE;
+            if (response == null || response.length != length) {
+                return null;
+            }
+            System.arraycopy(response, 0, result, (page - startPage) * PAGE_SIZE, length);
+        }
+        return result;
+    }
+
+    /**
+     * Read the pages start..end (inclusive) with READ, which every Ultralight supports, 4 pages per frame.
+     */
+    static byte[] readRange(TagTransport transport, int startPage, int endPage) throws IOException {
+        byte[] result = new byte[(endPage - startPage + 1) * PAGE_SIZE];
+        byte[] command = new byte[2];
+        command[0] = CMD_READ;
+        for (int page = startPage; page <= endPage; page += 4) {
+            command[1] = (byte) page;
+            byte[] response = transport.transceive(command);
+            if (response == null || response.length != 4 * PAGE_SIZE) {
+                throw new IOException("READ failed at page " + page);
+            }
+            // READ rolls over at the end of the memory, only keep the pages inside the range
+            int offset = (page - startPage) * PAGE_SIZE;
+            System.arraycopy(response, 0, result, offset, Math.min(response.length, result.length - offset));
+        }
+        return result;
+    }
+
+    /**
+     * WRITE one page from data at offset, reusing the command buffer (6 bytes) across pages.
+     * A NAK (e.g. a locked page) surfaces as IOException and leaves the chip in IDLE state.
+     */
+    static void writePage(TagTransport transport, byte[] command, int page, byte[] data, int offset) throws IOException {
+        command[0] = CMD_WRITE;
+        command[1] = (byte) page;
+        System.arraycopy(data, offset, command, 2, PAGE_SIZE);
+        byte[] response = transport.transceive(command);
+        // the 4 bit ACK comes back empty or as 0x0A depending on the controller
+        if (response != null && response.length > 0 && (response[0] & 0x0f) != ACK) {
+            throw new IOException(String.format("WRITE NAK 0x%X at page %d", response[0] & 0x0f, page));
+        }
+    }
+}
@@ -4,67 +4,115 @@ import android.nfc.NdefMessage;
 import android.nfc.NdefRecord;
 import android.nfc.Tag;
 import android.nfc.tech.Ndef;
+import android.util.Base64;
 import android.util.Log;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 
 public class Util {
 
     static final String TAG = "NfcPlugin";
     final protected static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
-    static JSONObject ndefToJSON(Ndef ndef) {
-        JSONObject json = new JSONObject();
+    /**
+     * The tag event of an Ndef tag, written straight into a WritableMap.
+     */
+    static WritableMap ndefToReact(Ndef ndef, boolean base64, boolean decode) {
+        WritableMap map = Arguments.createMap();
 
         if (ndef != null) {
-            try {
+            Tag tag = ndef.getTag();
+            // tag is going to be null for NDEF_FORMATABLE until NfcUtil.parseMessage is refactored
+            if (tag != null) {
+                putTag(map, tag);
+            }
 
-                Tag tag = ndef.getTag();
-                // tag is going to be null for NDEF_FORMATABLE until NfcUtil.parseMessage is refactored
-                if (tag != null) {
-                    json.put("id", bytesToHex(tag.getId()));
-                    json.put("techTypes", new JSONArray(Arrays.asList(tag.getTechList())));
-                }
-
-                json.put("type", translateType(ndef.getType()));
-                json.put("maxSize", ndef.getMaxSize());
-                json.put("isWritable", ndef.isWritable());
-                json.put("ndefMessage", messageToJSON(ndef.getCachedNdefMessage()));
-                // Workaround for bug in ICS (Android 4.0 and 4.0.1) where
-                // mTag.getTagService(); of the Ndef object sometimes returns null
-                // see http://issues.mroland.at/index.php?do=details&task_id=47
-                try {
-                    json.put("canMakeReadOnly", ndef.canMakeReadOnly());
-                } catch (NullPointerException e) {
-                    json.put("canMakeReadOnly", JSONObject.NULL);
-                } catch (SecurityException e) {
-                    Log.e(TAG, "Failed due to out of date tag", e);
-                    json.put("canMakeReadOnly", JSONObject.NULL);
-                }   
-            } catch (JSONException e) {
-                Log.e(TAG, "Failed to convert ndef into json: " + ndef, e);
+            map.putString("type", translateType(ndef.getType()));
+            map.putInt("maxSize", ndef.getMaxSize());
+            map.putBoolean("isWritable", ndef.isWritable());
+            NdefMessage message = ndef.getCachedNdefMessage();
+            if (message != null) {
+                map.putArray("ndefMessage", messageToReact(message, base64, decode));
+            }
+            // Workaround for bug in ICS (Android 4.0 and 4.0.1) where
+            // mTag.getTagService(); of the Ndef object sometimes returns null
+            // see http://issues.mroland.at/index.php?do=details&task_id=47
+            try {
+                map.putBoolean("canMakeReadOnly", ndef.canMakeReadOnly());
+            } catch (NullPointerException e) {
+                map.putNull("canMakeReadOnly");
+            } catch (SecurityException e) {
+                Log.e(TAG, "Failed due to out of date tag", e);
+                map.putNull("canMakeReadOnly");
             }
         }
-        return json;
+        return map;
     }
 
-    static JSONObject tagToJSON(Tag tag) {
-        JSONObject json = new JSONObject();
+    static WritableMap tagToReact(Tag tag) {
+        WritableMap map = Arguments.createMap();
 
         if (tag != null) {
-            try {
-                json.put("id", bytesToHex(tag.getId()));
-                json.put("techTypes", new JSONArray(Arrays.asList(tag.getTechList())));
-            } catch (JSONException e) {
-                Log.e(TAG, "Failed to convert tag into json: " + tag, e);
+            putTag(map, tag);
+        }
+        return map;
+    }
+
+    private static void putTag(WritableMap map, Tag tag) {
+        map.putString("id", bytesToHex(tag.getId()));
+        WritableArray techTypes = Arguments.createArray();
+        for (String tech : tag.getTechList()) {
+            techTypes.pushString(tech);
+        }
+        map.putArray("techTypes", techTypes);
+    }
+
+    static WritableArray messageToReact(NdefMessage message, boolean base64, boolean decode) {
+        WritableArray array = Arguments.createArray();
+        for (NdefRecord ndefRecord : message.getRecords()) {
+            array.pushMap(recordToReact(ndefRecord, base64, decode));
+        }
+        return array;
+    }
+
+    /**
+     * With decode set, well-known records also carry a "decoded" view built by NdefCodec.
+     */
+    static WritableMap recordToReact(NdefRecord record, boolean base64, boolean decode) {
+        WritableMap map = Arguments.createMap();
+        map.putInt("tnf", record.getTnf());
+        map.putArray("type", byteArrayToReact(record.getType()));
+        map.putString("id", bytesToHex(record.getId()));
+        if (base64) {
+            map.putString("payload", Base64.encodeToString(record.getPayload(), Base64.NO_WRAP));
+        } else {
+            map.putArray("payload", byteArrayToReact(record.getPayload()));
+        }
+        if (decode) {
+            WritableMap decoded = NdefCodec.decode(record);
+            if (decoded != null) {
+                map.putMap("decoded", decoded);
             }
         }
-        return json;
+        return map;
+    }
+
+    static byte[] rnArrayToBytes(ReadableArray rArray) {
+        byte[] bytes = new byte[rArray.size()];
+        for (int i = 0; i < rArray.size(); i++) {
+            bytes[i] = (byte)(rArray.getInt(i) & 0xff);
+        }
+        return bytes;
+    }
+
+    static WritableArray byteArrayToReact(byte[] bytes) {
+        WritableArray array = Arguments.createArray();
+        for (byte aByte : bytes) {
+            array.pushInt(aByte & 0xFF);
+        }
+        return array;
     }
 
     static String translateType(String type) {
@@ -89,15 +137,6 @@ public class Util {
         return translation;
     }
 
-    static JSONArray byteArrayToJSON(byte[] bytes) {
-        JSONArray json = new JSONArray();
-        for (byte aByte : bytes) {
-            int v = aByte & 0xFF;
-            json.put(v);
-        }
-        return json;
-    }
-
     public static String bytesToHex(byte[] bytes) {
         char[] hexChars = new char[bytes.length * 2];
 
@@ -110,33 +149,4 @@ public class Util {
 
         return new String(hexChars);
     }
-
-    static JSONArray messageToJSON(NdefMessage message) {
-        if (message == null) {
-            return null;
-        }
-
-        List<JSONObject> list = new ArrayList<>();
-
-        for (NdefRecord ndefRecord : message.getRecords()) {
-            list.add(recordToJSON(ndefRecord));
-        }
-
-        return new JSONArray(list);
-    }
-
-    static JSONObject recordToJSON(NdefRecord record) {
-        JSONObject json = new JSONObject();
-        try {
-            json.put("tnf", record.getTnf());
-            json.put("type", byteArrayToJSON(record.getType()));
-            json.put("id", bytesToHex(record.getId()));
-            json.put("payload", byteArrayToJSON(record.getPayload()));
-        } catch (JSONException e) {
-            //Not sure why this would happen, documentation is unclear.
-            Log.e(TAG, "Failed to convert ndef record into json: " + record, e);
-        }
-        return json;
-    }
-
 }
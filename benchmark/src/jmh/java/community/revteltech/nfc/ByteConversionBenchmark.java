@@ -0,0 +1,42 @@
+package community.revteltech.nfc;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The byte[] <-> js number array conversions every transceive / read / write goes through,
+ * measured with a full MIFARE Classic 4K dump.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ByteConversionBenchmark {
+
+    private byte[] dump;
+    private ReadableArray rnDump;
+
+    @Setup
+    public void setup() {
+        dump = Payloads.classic4kDump();
+        rnDump = Util.byteArrayToReact(dump);
+    }
+
+    @Benchmark
+    public byte[] rnArrayToBytes() {
+        return Util.rnArrayToBytes(rnDump);
+    }
+
+    @Benchmark
+    public WritableArray bytesToRnArray() {
+        return Util.byteArrayToReact(dump);
+    }
+}
@@ -0,0 +1,90 @@
+package community.revteltech.nfc;
+
+import android.nfc.NdefMessage;
+import android.nfc.NdefRecord;
+import android.nfc.Tag;
+import android.nfc.tech.Ndef;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The tag events as the module built them before Util.ndefToReact: a JSONObject,
+ * then converted with JsonConvert.jsonToReact. Kept as the baseline of the comparison.
+ */
+class JsonBaseline {
+    private static final String TAG = "NfcPlugin";
+
+    static JSONObject ndefToJSON(Ndef ndef) {
+        JSONObject json = new JSONObject();
+
+        if (ndef != null) {
+            try {
+
+                Tag tag = ndef.getTag();
+                // tag is going to be null for NDEF_FORMATABLE until NfcUtil.parseMessage is refactored
+                if (tag != null) {
+                    json.put("id", Util.bytesToHex(tag.getId()));
+                    json.put("techTypes", new JSONArray(Arrays.asList(tag.getTechList())));
+                }
+
+                json.put("type", Util.translateType(ndef.getType()));
+                json.put("maxSize", ndef.getMaxSize());
+                json.put("isWritable", ndef.isWritable());
+                json.put("ndefMessage", messageToJSON(ndef.getCachedNdefMessage()));
+                try {
+                    json.put("canMakeReadOnly", ndef.canMakeReadOnly());
+                } catch (NullPointerException e) {
+                    json.put("canMakeReadOnly", JSONObject.NULL);
+                } catch (SecurityException e) {
+                    Log.e(TAG, "Failed due to out of date tag", e);
+                    json.put("canMakeReadOnly", JSONObject.NULL);
+                }
+            } catch (JSONException e) {
+                Log.e(TAG, "Failed to convert ndef into json: " + ndef, e);
+            }
+        }
+        return json;
+    }
+
+    static JSONArray byteArrayToJSON(byte[] bytes) {
+        JSONArray json = new JSONArray();
+        for (byte aByte : bytes) {
+            int v = aByte & 0xFF;
+            json.put(v);
+        }
+        return json;
+    }
+
+    static JSONArray messageToJSON(NdefMessage message) {
+        if (message == null) {
+            return null;
+        }
+
+        List<JSONObject> list = new ArrayList<>();
+
+        for (NdefRecord ndefRecord : message.getRecords()) {
+            list.add(recordToJSON(ndefRecord));
+        }
+
+        return new JSONArray(list);
+    }
+
+    static JSONObject recordToJSON(NdefRecord record) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("tnf", record.getTnf());
+            json.put("type", byteArrayToJSON(record.getType()));
+            json.put("id", Util.bytesToHex(record.getId()));
+            json.put("payload", byteArrayToJSON(record.getPayload()));
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to convert ndef record into json: " + record, e);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,43 @@
+package community.revteltech.nfc;
+
+import com.facebook.react.bridge.WritableMap;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonConvertBenchmark {
+
+    @Param({Payloads.URI_TAG, Payloads.MESSAGE_4K})
+    public String payload;
+
+    private JSONObject json;
+    private WritableMap map;
+
+    @Setup
+    public void setup() {
+        json = JsonBaseline.ndefToJSON(Payloads.ndef(payload));
+        map = Util.ndefToReact(Payloads.ndef(payload), false, false);
+    }
+
+    @Benchmark
+    public WritableMap jsonToReact() throws JSONException {
+        return JsonConvert.jsonToReact(json);
+    }
+
+    @Benchmark
+    public JSONObject reactToJSON() throws JSONException {
+        return JsonConvert.reactToJSON(map);
+    }
+}
@@ -0,0 +1,36 @@
+package community.revteltech.nfc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What recording one operation costs, it runs for every tag I/O call so it has to stay in the nanoseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private final NfcMetrics metrics = new NfcMetrics();
+    private long latency = 0;
+
+    @Benchmark
+    public void recordLatency() {
+        latency = (latency + 7919) & 0xfffff;
+        metrics.recordLatency("transceive", "IsoDep", latency * 1000);
+    }
+
+    // the executor records from a single thread, this shows the cost if several threads did
+    @Benchmark
+    @Threads(4)
+    public void recordLatencyContended() {
+        metrics.recordLatency("transceive", "IsoDep", 250000);
+    }
+}
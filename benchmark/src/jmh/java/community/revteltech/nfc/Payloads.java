@@ -0,0 +1,72 @@
+package community.revteltech.nfc;
+
+import android.nfc.NdefMessage;
+import android.nfc.NdefRecord;
+import android.nfc.Tag;
+import android.nfc.tech.Ndef;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Realistic inputs for the benchmarks, the same shapes we see from real tags.
+ */
+final class Payloads {
+    static final String URI_TAG = "uriTag";
+    static final String MESSAGE_4K = "message4k";
+
+    static final int CLASSIC_4K_SIZE = 4096;
+
+    private static final String[] TECH_LIST = {
+            "android.nfc.tech.NfcA",
+            "android.nfc.tech.MifareUltralight",
+            "android.nfc.tech.Ndef",
+    };
+
+    private Payloads() {
+    }
+
+    static Ndef ndef(String name) {
+        NdefMessage message = URI_TAG.equals(name) ? uriMessage() : message4k();
+        return new Ndef(tag(), Ndef.NFC_FORUM_TYPE_2, 4096, true, message);
+    }
+
+    static Tag tag() {
+        return new Tag(new byte[]{0x04, 0x5a, 0x3c, 0x12, 0x6f, 0x61, (byte) 0x80}, TECH_LIST);
+    }
+
+    /**
+     * One URI record, what a typical NTAG213 sticker carries.
+     */
+    static NdefMessage uriMessage() {
+        byte[] uri = "reactnative.dev/docs/getting-started".getBytes(Charset.forName("UTF-8"));
+        byte[] payload = new byte[uri.length + 1];
+        payload[0] = 0x04; // https://
+        System.arraycopy(uri, 0, payload, 1, uri.length);
+        return new NdefMessage(new NdefRecord(NdefRecord.TNF_WELL_KNOWN, NdefRecord.RTD_URI, new byte[0], payload));
+    }
+
+    /**
+     * Ten 400 bytes MIME records, about 4 KB in total.
+     */
+    static NdefMessage message4k() {
+        NdefRecord[] records = new NdefRecord[10];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = NdefRecord.createMime("application/octet-stream", randomBytes(400, i));
+        }
+        return new NdefMessage(records);
+    }
+
+    /**
+     * A full MIFARE Classic 4K dump, 256 blocks of 16 bytes.
+     */
+    static byte[] classic4kDump() {
+        return randomBytes(CLASSIC_4K_SIZE, 4096);
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,137 @@
+package community.revteltech.nfc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame round trips through the TagTransport seam against the simulated tags.
+ * With frameLatencyMicros > 0 the numbers approximate what a real card allows,
+ * at 0 they measure only the module side of the path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransportBenchmark {
+
+    private static final byte[] SELECT_NDEF_APP = {
+            0x00, (byte) 0xA4, 0x04, 0x00, 0x07, (byte) 0xD2, 0x76, 0x00, 0x00, (byte) 0x85, 0x01, 0x01, 0x00
+    };
+    private static final byte[] EF_DATA = {0x01, 0x01};
+    private static final byte[] KEY_DEFAULT = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+
+    @Param({"0", "500"})
+    public long frameLatencyMicros;
+
+    private SimulatedNtag ntag;
+    private SimulatedMifareClassic classic;
+    private SimulatedIsoDep isoDep;
+    private SimulatedIsoDep isoDepExtended;
+    private SimulatedNfcV nfcV;
+    private byte[] writeFrame;
+    private byte[] ndefMessage;
+    private final byte[] pageCommand = new byte[6];
+
+    @Setup
+    public void setup() {
+        ntag = new SimulatedNtag(SimulatedNtag.NTAG215_PAGES);
+        ntag.setFrameLatency(frameLatencyMicros, TimeUnit.MICROSECONDS);
+        classic = new SimulatedMifareClassic(SimulatedMifareClassic.SIZE_1K);
+        classic.setFrameLatency(frameLatencyMicros, TimeUnit.MICROSECONDS);
+        isoDep = new SimulatedIsoDep().script(SELECT_NDEF_APP, new byte[]{(byte) 0x90, 0x00});
+        isoDep.file(EF_DATA, new byte[10 * 1024]);
+        isoDep.setFrameLatency(frameLatencyMicros, TimeUnit.MICROSECONDS);
+        isoDepExtended = new SimulatedIsoDep(65279).file(EF_DATA, new byte[10 * 1024]);
+        isoDepExtended.setFrameLatency(frameLatencyMicros, TimeUnit.MICROSECONDS);
+        nfcV = new SimulatedNfcV(2048, 4, NfcVUtil.MAX_BLOCKS_PER_READ);
+        nfcV.setFrameLatency(frameLatencyMicros, TimeUnit.MICROSECONDS);
+        writeFrame = new byte[]{(byte) 0xA2, 4, 0x03, 0x00, (byte) 0xFE, 0x00};
+        ndefMessage = new byte[100];
+    }
+
+    @Benchmark
+    public byte[] ntagRead() throws IOException {
+        return ntag.transceive(new byte[]{0x30, 4});
+    }
+
+    // the whole user memory of an NTAG215 with READ, 4 pages per frame
+    @Benchmark
+    public int ntagReadAllPages() throws IOException {
+        int total = 0;
+        for (int page = 0; page < ntag.getPageCount(); page += 4) {
+            total += ntag.transceive(new byte[]{0x30, (byte) page}).length;
+        }
+        return total;
+    }
+
+    // the same dump through mifareUltralightReadRange's paths
+    @Benchmark
+    public byte[] ntagReadRangeFastRead() throws IOException {
+        return UltralightUtil.fastReadRange(ntag, 0, ntag.getPageCount() - 1);
+    }
+
+    @Benchmark
+    public byte[] ntagReadRangeRead() throws IOException {
+        return UltralightUtil.readRange(ntag, 0, ntag.getPageCount() - 1);
+    }
+
+    // an NDEF update changing one byte of a 100 byte message, only the changed pages go out
+    @Benchmark
+    public int ntagMinimalNdefUpdate() throws IOException {
+        ndefMessage[60]++;
+        byte[] data = UltralightUtil.fastReadRange(ntag, Type2Ndef.DATA_START_PAGE, ntag.getPageCount() - 6);
+        Type2Ndef.Plan plan = Type2Ndef.plan(data, ndefMessage);
+        for (Type2Ndef.PageWrite write : plan.writes) {
+            UltralightUtil.writePage(ntag, pageCommand, write.page, write.data, 0);
+        }
+        return plan.writes.size();
+    }
+
+    @Benchmark
+    public byte[] ntagWrite() throws IOException {
+        return ntag.transceive(writeFrame);
+    }
+
+    @Benchmark
+    public byte[] classicAuthenticateAndRead() throws IOException {
+        byte[] auth = new byte[8];
+        auth[0] = 0x60;
+        auth[1] = 4;
+        System.arraycopy(KEY_DEFAULT, 0, auth, 2, KEY_DEFAULT.length);
+        classic.transceive(auth);
+        return classic.transceive(new byte[]{0x30, 4});
+    }
+
+    // an 8 KB ST25DV dump with nfcVReadBlocks' Read Multiple Blocks frames
+    @Benchmark
+    public byte[] nfcVReadAllBlocks() throws IOException {
+        return NfcVUtil.readBlocks(nfcV, nfcV.getUid(), 0, nfcV.getBlockCount(), 4);
+    }
+
+    @Benchmark
+    public byte[] isoDepSelect() throws IOException {
+        return isoDep.transceive(SELECT_NDEF_APP);
+    }
+
+    // a 10 KB EF with isoDepReadBinary, short APDUs (256 bytes per frame)
+    @Benchmark
+    public byte[] isoDepReadBinaryShort() throws IOException {
+        Iso7816Util.select(isoDep, EF_DATA);
+        return Iso7816Util.readBinary(isoDep, 0, 0, false);
+    }
+
+    // the same EF with extended length APDUs, one READ BINARY
+    @Benchmark
+    public byte[] isoDepReadBinaryExtended() throws IOException {
+        Iso7816Util.select(isoDepExtended, EF_DATA);
+        return Iso7816Util.readBinary(isoDepExtended, 0, 0, true);
+    }
+}
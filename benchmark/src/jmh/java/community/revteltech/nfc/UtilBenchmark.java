@@ -0,0 +1,63 @@
+package community.revteltech.nfc;
+
+import android.nfc.NdefRecord;
+import android.nfc.tech.Ndef;
+import com.facebook.react.bridge.WritableMap;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UtilBenchmark {
+
+    @Param({Payloads.URI_TAG, Payloads.MESSAGE_4K})
+    public String payload;
+
+    private Ndef ndef;
+    private NdefRecord record;
+    private byte[] dump;
+
+    @Setup
+    public void setup() {
+        ndef = Payloads.ndef(payload);
+        record = ndef.getCachedNdefMessage().getRecords()[0];
+        dump = Payloads.classic4kDump();
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return Util.bytesToHex(dump);
+    }
+
+    @Benchmark
+    public JSONArray byteArrayToJSON() {
+        return JsonBaseline.byteArrayToJSON(dump);
+    }
+
+    @Benchmark
+    public JSONObject ndefToJSON() {
+        return JsonBaseline.ndefToJSON(ndef);
+    }
+
+    @Benchmark
+    public JSONObject recordToJSON() {
+        return JsonBaseline.recordToJSON(record);
+    }
+
+    // the direct path tag events use now, for comparison with ndefToJSON + JsonConvert.jsonToReact
+    @Benchmark
+    public WritableMap ndefToReact() {
+        return Util.ndefToReact(ndef, false, false);
+    }
+}
@@ -0,0 +1,66 @@
+package community.revteltech.nfc;
+
+import android.nfc.TagLostException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays back the tag side of a recorded FrameTrace: each command must match the next recorded one,
+ * and gets the recorded response (or failure) after the recorded duration.
+ */
+class ReplayTag extends SimulatedTag {
+    private final List<FrameTrace.Frame> frames = new ArrayList<>();
+    private final double timeScale;
+    private int position = 0;
+
+    /**
+     * @param timeScale 1 reproduces the recorded timing, 0 replays as fast as possible
+     */
+    ReplayTag(String techType, List<FrameTrace.Frame> recorded, double timeScale) {
+        super(techType, Integer.MAX_VALUE);
+        for (FrameTrace.Frame frame : recorded) {
+            // NDEF reads / writes have no raw frame to match
+            if (frame.op != FrameTrace.OP_NDEF_READ && frame.op != FrameTrace.OP_NDEF_WRITE) {
+                frames.add(frame);
+            }
+        }
+        this.timeScale = timeScale;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    boolean isFinished() {
+        return position >= frames.size();
+    }
+
+    @Override
+    protected byte[] process(byte[] frame) throws IOException {
+        if (isFinished()) {
+            throw new IOException("replay finished after " + frames.size() + " frames");
+        }
+        FrameTrace.Frame recorded = frames.get(position);
+        if (!Arrays.equals(recorded.command, frame)) {
+            throw new IOException("replay diverged at frame " + position + ": expected " + Util.bytesToHex(recorded.command)
+                    + " but got " + Util.bytesToHex(frame));
+        }
+        position++;
+
+        if (timeScale > 0) {
+            LockSupport.parkNanos((long) (TimeUnit.MICROSECONDS.toNanos(recorded.durationMicros) * timeScale));
+        }
+        if (recorded.response != null) {
+            return recorded.response.clone();
+        }
+        if (recorded.error != null && recorded.error.contains("TagLostException")) {
+            throw new TagLostException(recorded.error);
+        }
+        throw new IOException(recorded.error);
+    }
+}
@@ -0,0 +1,108 @@
+package community.revteltech.nfc;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ISO-DEP card answering APDUs from a script, plus SELECT / READ BINARY / UPDATE BINARY
+ * (short or extended length) on its transparent files. Unknown commands get 6A82 (file not found).
+ */
+class SimulatedIsoDep extends SimulatedTag {
+    private static final byte[] SW_OK = {(byte) 0x90, 0x00};
+    private static final byte[] SW_FILE_NOT_FOUND = {0x6A, (byte) 0x82};
+    private static final byte[] SW_WRONG_OFFSET = {0x6B, 0x00};
+
+    private final Map<String, byte[]> script = new HashMap<>();
+    private final Map<String, byte[]> files = new HashMap<>();
+    private byte[] selected = null;
+
+    SimulatedIsoDep() {
+        this(261);
+    }
+
+    /**
+     * @param maxTransceiveLength above 261 the card accepts extended length APDUs
+     */
+    SimulatedIsoDep(int maxTransceiveLength) {
+        super("IsoDep", maxTransceiveLength);
+    }
+
+    /**
+     * Reply to the exact command with the response (data followed by the status word).
+     */
+    SimulatedIsoDep script(byte[] command, byte[] response) {
+        script.put(Util.bytesToHex(command), response.clone());
+        return this;
+    }
+
+    /**
+     * Add a transparent EF, selectable by its 2 byte file identifier.
+     */
+    SimulatedIsoDep file(byte[] fid, byte[] content) {
+        files.put(Util.bytesToHex(fid), content.clone());
+        return this;
+    }
+
+    byte[] getFile(byte[] fid) {
+        return files.get(Util.bytesToHex(fid)).clone();
+    }
+
+    @Override
+    protected byte[] process(byte[] frame) throws IOException {
+        byte[] response = script.get(Util.bytesToHex(frame));
+        if (response != null) {
+            return response.clone();
+        }
+        if (frame.length < 4) {
+            return SW_FILE_NOT_FOUND.clone();
+        }
+
+        int offset = (frame[2] & 0xff) << 8 | (frame[3] & 0xff);
+        switch (frame[1]) {
+            case Iso7816Util.INS_SELECT:
+                if (frame[2] == 0x00 && frame.length == 7) {
+                    byte[] fid = {frame[5], frame[6]};
+                    selected = files.get(Util.bytesToHex(fid));
+                    return selected != null ? SW_OK.clone() : SW_FILE_NOT_FOUND.clone();
+                }
+                break;
+            case Iso7816Util.INS_READ_BINARY: {
+                if (selected == null) {
+                    break;
+                }
+                if (offset >= selected.length) {
+                    return SW_WRONG_OFFSET.clone();
+                }
+                int le;
+                if (frame.length == 7) {
+                    le = (frame[5] & 0xff) << 8 | (frame[6] & 0xff);
+                    le = le == 0 ? 65536 : le;
+                } else {
+                    le = frame[4] & 0xff;
+                    le = le == 0 ? 256 : le;
+                }
+                int count = Math.min(le, selected.length - offset);
+                response = new byte[count + 2];
+                System.arraycopy(selected, offset, response, 0, count);
+                // fewer bytes than asked for: end of file reached
+                response[count] = count < le ? (byte) 0x62 : (byte) 0x90;
+                response[count + 1] = count < le ? (byte) 0x82 : 0x00;
+                return response;
+            }
+            case Iso7816Util.INS_UPDATE_BINARY: {
+                if (selected == null) {
+                    break;
+                }
+                int lc = frame.length > 7 && frame[4] == 0x00 ? (frame[5] & 0xff) << 8 | (frame[6] & 0xff) : frame[4] & 0xff;
+                int dataOffset = frame.length - lc;
+                if (offset + lc > selected.length) {
+                    return SW_WRONG_OFFSET.clone();
+                }
+                System.arraycopy(frame, dataOffset, selected, offset, lc);
+                return SW_OK.clone();
+            }
+        }
+        return SW_FILE_NOT_FOUND.clone();
+    }
+}
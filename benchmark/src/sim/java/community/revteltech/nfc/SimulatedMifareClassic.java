@@ -0,0 +1,100 @@
+package community.revteltech.nfc;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * MIFARE Classic 1K/4K sectors with per sector keys, behind the MifareClassic tech.
+ * The crypto1 layer is not simulated: AUTH takes the key in clear (0x60/0x61, block, 6 key bytes),
+ * then READ (0x30) and WRITE (0xA0, block, 16 bytes) work on the authenticated sector only.
+ */
+class SimulatedMifareClassic extends SimulatedTag {
+    static final int SIZE_1K = 1024;
+    static final int SIZE_4K = 4096;
+
+    private static final int BLOCK_SIZE = 16;
+    private static final byte[] KEY_DEFAULT = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+
+    private final byte[] memory;
+    private final byte[][] keysA;
+    private final byte[][] keysB;
+    private int authenticatedSector = -1;
+
+    SimulatedMifareClassic(int size) {
+        super("MifareClassic", 253);
+        memory = new byte[size];
+        keysA = new byte[getSectorCount()][];
+        keysB = new byte[getSectorCount()][];
+        for (int sector = 0; sector < getSectorCount(); sector++) {
+            setKeys(sector, KEY_DEFAULT, KEY_DEFAULT);
+        }
+    }
+
+    int getSectorCount() {
+        // 4K: 32 sectors of 4 blocks followed by 8 sectors of 16 blocks
+        return memory.length == SIZE_4K ? 40 : 16;
+    }
+
+    int getBlockCountInSector(int sector) {
+        return sector < 32 ? 4 : 16;
+    }
+
+    int sectorToBlock(int sector) {
+        return sector < 32 ? sector * 4 : 32 * 4 + (sector - 32) * 16;
+    }
+
+    int blockToSector(int block) {
+        return block < 32 * 4 ? block / 4 : 32 + (block - 32 * 4) / 16;
+    }
+
+    void setKeys(int sector, byte[] keyA, byte[] keyB) {
+        keysA[sector] = keyA.clone();
+        keysB[sector] = keyB.clone();
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        authenticatedSector = -1;
+    }
+
+    @Override
+    protected byte[] process(byte[] frame) throws IOException {
+        switch (frame[0]) {
+            case 0x60:
+            case 0x61: {
+                int sector = blockToSector(frame[1] & 0xff);
+                byte[] key = Arrays.copyOfRange(frame, 2, 8);
+                byte[] expected = frame[0] == 0x60 ? keysA[sector] : keysB[sector];
+                if (!Arrays.equals(key, expected)) {
+                    authenticatedSector = -1;
+                    // a failed auth halts the card, like the real one
+                    throw new IOException("Transceive failed");
+                }
+                authenticatedSector = sector;
+                return new byte[0];
+            }
+            case 0x30: {
+                int block = frame[1] & 0xff;
+                checkAuthenticated(block);
+                return Arrays.copyOfRange(memory, block * BLOCK_SIZE, (block + 1) * BLOCK_SIZE);
+            }
+            case (byte) 0xA0: {
+                int block = frame[1] & 0xff;
+                checkAuthenticated(block);
+                if (frame.length != 2 + BLOCK_SIZE) {
+                    throw new IOException("Transceive failed");
+                }
+                System.arraycopy(frame, 2, memory, block * BLOCK_SIZE, BLOCK_SIZE);
+                return new byte[0];
+            }
+        }
+        throw new IOException("Transceive failed");
+    }
+
+    private void checkAuthenticated(int block) throws IOException {
+        if (block * BLOCK_SIZE >= memory.length || blockToSector(block) != authenticatedSector) {
+            throw new IOException("Transceive failed");
+        }
+    }
+}
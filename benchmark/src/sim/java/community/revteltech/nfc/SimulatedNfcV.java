@@ -0,0 +1,112 @@
+package community.revteltech.nfc;
+
+import java.io.IOException;
+
+/**
+ * ISO 15693 tag (ICODE SLIX2 / ST25DV like) behind NfcV, supports Get System Information,
+ * Read / Write Single Block and Read Multiple Blocks, addressed or not, plus the extended variants.
+ */
+class SimulatedNfcV extends SimulatedTag {
+    static final byte ERROR_NOT_SUPPORTED = 0x01;
+    static final byte ERROR_BLOCK_NOT_AVAILABLE = 0x10;
+
+    private final byte[] uid = {0x11, 0x22, 0x33, 0x44, 0x55, 0x01, 0x04, (byte) 0xE0};
+    private final byte[] memory;
+    private final int blockSize;
+    private final int maxBlocksPerRead;
+    private boolean systemInfo = true;
+
+    SimulatedNfcV(int blockCount, int blockSize, int maxBlocksPerRead) {
+        super("NfcV", 253);
+        this.memory = new byte[blockCount * blockSize];
+        this.blockSize = blockSize;
+        this.maxBlocksPerRead = maxBlocksPerRead;
+    }
+
+    /**
+     * Get System Information is optional, a tag without it answers with an error.
+     */
+    SimulatedNfcV setSystemInfoSupported(boolean supported) {
+        systemInfo = supported;
+        return this;
+    }
+
+    byte[] getUid() {
+        return uid.clone();
+    }
+
+    int getBlockCount() {
+        return memory.length / blockSize;
+    }
+
+    byte[] getMemory() {
+        return memory.clone();
+    }
+
+    @Override
+    protected byte[] process(byte[] frame) throws IOException {
+        if (frame.length < 2) {
+            return error(ERROR_NOT_SUPPORTED);
+        }
+        int offset = 2;
+        if ((frame[0] & NfcVUtil.FLAG_ADDRESSED) != 0) {
+            for (int i = 0; i < uid.length; i++) {
+                if (frame.length <= offset + i || frame[offset + i] != uid[i]) {
+                    // a request addressed to another tag isn't answered
+                    throw new IOException("Transceive failed");
+                }
+            }
+            offset += uid.length;
+        }
+
+        switch (frame[1]) {
+            case NfcVUtil.CMD_GET_SYSTEM_INFO: {
+                if (!systemInfo) {
+                    break;
+                }
+                byte[] info = new byte[2 + uid.length + 4];
+                info[1] = 0x07; // DSFID, AFI, memory size
+                System.arraycopy(uid, 0, info, 2, uid.length);
+                info[12] = (byte) (getBlockCount() - 1);
+                info[13] = (byte) (blockSize - 1);
+                return info;
+            }
+            case NfcVUtil.CMD_READ_SINGLE_BLOCK:
+                return read(frame[offset] & 0xff, 1);
+            case NfcVUtil.CMD_READ_MULTIPLE_BLOCKS:
+                return read(frame[offset] & 0xff, (frame[offset + 1] & 0xff) + 1);
+            case NfcVUtil.CMD_EXT_READ_MULTIPLE_BLOCKS:
+                return read(getShort(frame, offset), getShort(frame, offset + 2) + 1);
+            case NfcVUtil.CMD_WRITE_SINGLE_BLOCK:
+                return write(frame[offset] & 0xff, frame, offset + 1);
+            case NfcVUtil.CMD_EXT_WRITE_SINGLE_BLOCK:
+                return write(getShort(frame, offset), frame, offset + 2);
+        }
+        return error(ERROR_NOT_SUPPORTED);
+    }
+
+    private byte[] read(int block, int count) {
+        if (count > maxBlocksPerRead || block + count > getBlockCount()) {
+            return error(ERROR_BLOCK_NOT_AVAILABLE);
+        }
+        byte[] response = new byte[1 + count * blockSize];
+        System.arraycopy(memory, block * blockSize, response, 1, count * blockSize);
+        return response;
+    }
+
+    private byte[] write(int block, byte[] frame, int dataOffset) {
+        if (block >= getBlockCount() || frame.length != dataOffset + blockSize) {
+            return error(ERROR_BLOCK_NOT_AVAILABLE);
+        }
+        System.arraycopy(frame, dataOffset, memory, block * blockSize, blockSize);
+        return new byte[]{0x00};
+    }
+
+    private static int getShort(byte[] frame, int offset) {
+        return (frame[offset] & 0xff) | (frame[offset + 1] & 0xff) << 8;
+    }
+
+    private static byte[] error(byte code) {
+        return new byte[]{NfcVUtil.FLAG_ERROR, code};
+    }
+}
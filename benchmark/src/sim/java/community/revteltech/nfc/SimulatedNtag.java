@@ -0,0 +1,93 @@
+package community.revteltech.nfc;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * NTAG213/215/216 memory behind NfcA, supports GET_VERSION, READ, FAST_READ and WRITE.
+ */
+class SimulatedNtag extends SimulatedTag {
+    static final int NTAG213_PAGES = 45;
+    static final int NTAG215_PAGES = 135;
+    static final int NTAG216_PAGES = 231;
+
+    static final byte ACK = 0x0A;
+    static final byte NAK_INVALID_ARGUMENT = 0x00;
+
+    private static final int PAGE_SIZE = 4;
+
+    private final byte[] memory;
+    private final byte storageSize;
+
+    SimulatedNtag(int pageCount) {
+        super("NfcA", 253);
+        memory = new byte[pageCount * PAGE_SIZE];
+        switch (pageCount) {
+            case NTAG213_PAGES:
+                storageSize = 0x0F;
+                break;
+            case NTAG215_PAGES:
+                storageSize = 0x11;
+                break;
+            default:
+                storageSize = 0x13;
+                break;
+        }
+        // UID + capability container for an empty NDEF formatted tag
+        System.arraycopy(new byte[]{0x04, 0x5a, 0x3c, (byte) 0xf6, 0x12, 0x6f, 0x61, (byte) 0x80}, 0, memory, 0, 8);
+        memory[12] = (byte) 0xE1;
+        memory[13] = 0x10;
+        memory[14] = (byte) ((pageCount - 9) * PAGE_SIZE / 8);
+        memory[15] = 0x00;
+        memory[16] = 0x03;
+        memory[17] = 0x00;
+        memory[18] = (byte) 0xFE;
+    }
+
+    int getPageCount() {
+        return memory.length / PAGE_SIZE;
+    }
+
+    byte[] getMemory() {
+        return memory.clone();
+    }
+
+    @Override
+    protected byte[] process(byte[] frame) throws IOException {
+        switch (frame[0]) {
+            case 0x60: // GET_VERSION
+                return new byte[]{0x00, 0x04, 0x04, 0x02, 0x01, 0x00, storageSize, 0x03};
+            case 0x30: { // READ, 4 pages rolling over at the end of the memory
+                if (frame.length != 2 || (frame[1] & 0xff) >= getPageCount()) {
+                    return new byte[]{NAK_INVALID_ARGUMENT};
+                }
+                int page = frame[1] & 0xff;
+                byte[] result = new byte[16];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = memory[(page * PAGE_SIZE + i) % memory.length];
+                }
+                return result;
+            }
+            case 0x3A: { // FAST_READ start..end inclusive
+                if (frame.length != 3) {
+                    return new byte[]{NAK_INVALID_ARGUMENT};
+                }
+                int start = frame[1] & 0xff;
+                int end = frame[2] & 0xff;
+                if (start > end || end >= getPageCount()) {
+                    return new byte[]{NAK_INVALID_ARGUMENT};
+                }
+                return Arrays.copyOfRange(memory, start * PAGE_SIZE, (end + 1) * PAGE_SIZE);
+            }
+            case (byte) 0xA2: { // WRITE one page
+                // the UID / lock pages are not writable
+                if (frame.length != 6 || (frame[1] & 0xff) < 3 || (frame[1] & 0xff) >= getPageCount()) {
+                    return new byte[]{NAK_INVALID_ARGUMENT};
+                }
+                System.arraycopy(frame, 2, memory, (frame[1] & 0xff) * PAGE_SIZE, PAGE_SIZE);
+                return new byte[]{ACK};
+            }
+        }
+        return new byte[]{NAK_INVALID_ARGUMENT};
+    }
+}
@@ -0,0 +1,101 @@
+package community.revteltech.nfc;
+
+import android.nfc.TagLostException;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process tag behind the TagTransport seam, for load testing the raw I/O paths without a radio.
+ * Every frame pays the configured latency, and the tag can be made to leave the field
+ * after a number of frames or at random, which surfaces as TagLostException like on a device.
+ */
+abstract class SimulatedTag implements TagTransport {
+    private final String techType;
+    private final int maxTransceiveLength;
+    private long frameLatencyNanos = 0;
+    private long lostAfterFrames = -1;
+    private double lossProbability = 0;
+    private Random random = new Random(0);
+    private long frames = 0;
+    private boolean lost = false;
+
+    SimulatedTag(String techType, int maxTransceiveLength) {
+        this.techType = techType;
+        this.maxTransceiveLength = maxTransceiveLength;
+    }
+
+    /**
+     * Handle one command frame and return the response frame.
+     */
+    protected abstract byte[] process(byte[] frame) throws IOException;
+
+    SimulatedTag setFrameLatency(long latency, TimeUnit unit) {
+        frameLatencyNanos = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * The tag is lost on the frame after the given count, -1 to never lose it.
+     */
+    SimulatedTag setLostAfterFrames(long count) {
+        lostAfterFrames = count;
+        return this;
+    }
+
+    /**
+     * Each frame has this probability to lose the tag, drawn from a seeded generator so runs are repeatable.
+     */
+    SimulatedTag setLossProbability(double probability, long seed) {
+        lossProbability = probability;
+        random = new Random(seed);
+        return this;
+    }
+
+    /**
+     * Bring a lost tag back into the field.
+     */
+    void reset() {
+        frames = 0;
+        lost = false;
+    }
+
+    long getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public String getTechType() {
+        return techType;
+    }
+
+    @Override
+    public byte[] transceive(byte[] data) throws IOException {
+        if (data.length > maxTransceiveLength) {
+            throw new IOException("Transceive length exceeds supported maximum");
+        }
+        if (lost
+                || (lostAfterFrames >= 0 && frames >= lostAfterFrames)
+                || (lossProbability > 0 && random.nextDouble() < lossProbability)) {
+            lost = true;
+            throw new TagLostException("Tag was lost.");
+        }
+        frames++;
+        if (frameLatencyNanos > 0) {
+            LockSupport.parkNanos(frameLatencyNanos);
+        }
+        return process(data);
+    }
+
+    @Override
+    public int getMaxTransceiveLength() {
+        return maxTransceiveLength;
+    }
+
+    @Override
+    public boolean setTimeout(int timeout) {
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+package community.revteltech.nfc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays a flushed frame trace (see NfcManager.flushFrameTrace) on the JVM:
+ *
+ *     gradle replayTrace -Ptrace=nfc-trace.bin [-Ptarget=replay|ntag213|ntag215|ntag216|classic1k|classic4k] [-PtimeScale=1]
+ *
+ * With the replay target the recorded responses, failures and timing are played back, which reproduces
+ * timing sensitive failures. The other targets send the recorded commands to a simulated tag instead
+ * and report where its responses differ from the capture.
+ */
+public class TraceReplay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: TraceReplay <trace file> [target] [timeScale]");
+            System.exit(1);
+        }
+        List<FrameTrace.Frame> frames = FrameTrace.readLog(new File(args[0]));
+        String target = args.length > 1 ? args[1] : "replay";
+        double timeScale = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+
+        SimulatedTag tag = createTarget(target, frames, timeScale);
+        int skipped = 0;
+        int mismatches = 0;
+        long recordedMicros = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames.size(); i++) {
+            FrameTrace.Frame frame = frames.get(i);
+            if (frame.op == FrameTrace.OP_NDEF_READ || frame.op == FrameTrace.OP_NDEF_WRITE) {
+                skipped++;
+                continue;
+            }
+            recordedMicros += frame.durationMicros;
+
+            byte[] response;
+            String error = null;
+            try {
+                response = tag.transceive(frame.command);
+            } catch (IOException ex) {
+                response = null;
+                error = ex.toString();
+            }
+
+            boolean sameOutcome = frame.response != null ? Arrays.equals(frame.response, response) : response == null;
+            if (!sameOutcome) {
+                mismatches++;
+                System.out.println(String.format("#%d %s %s: recorded %s, replayed %s", i, frame.tech,
+                        Util.bytesToHex(frame.command), describe(frame.response, frame.error), describe(response, error)));
+            }
+            if (response == null && target.equals("replay") && error != null && error.contains("diverged")) {
+                break;
+            }
+        }
+        long replayedMicros = (System.nanoTime() - start) / 1000;
+
+        System.out.println(String.format("%d frames (%d NDEF skipped), %d mismatches, recorded %.1f ms, replayed %.1f ms",
+                frames.size(), skipped, mismatches, recordedMicros / 1000.0, replayedMicros / 1000.0));
+        if (mismatches > 0) {
+            System.exit(2);
+        }
+    }
+
+    private static SimulatedTag createTarget(String target, List<FrameTrace.Frame> frames, double timeScale) {
+        switch (target) {
+            case "ntag213":
+                return new SimulatedNtag(SimulatedNtag.NTAG213_PAGES);
+            case "ntag215":
+                return new SimulatedNtag(SimulatedNtag.NTAG215_PAGES);
+            case "ntag216":
+                return new SimulatedNtag(SimulatedNtag.NTAG216_PAGES);
+            case "classic1k":
+                return new SimulatedMifareClassic(SimulatedMifareClassic.SIZE_1K);
+            case "classic4k":
+                return new SimulatedMifareClassic(SimulatedMifareClassic.SIZE_4K);
+            case "replay":
+                return new ReplayTag(frames.isEmpty() ? "NfcA" : frames.get(0).tech, frames, timeScale);
+        }
+        throw new IllegalArgumentException("unknown target " + target);
+    }
+
+    private static String describe(byte[] response, String error) {
+        return response != null ? Util.bytesToHex(response) : "failure (" + error + ")";
+    }
+}
@@ -0,0 +1,27 @@
+package android.nfc;
+
+public final class NdefMessage {
+    private final NdefRecord[] records;
+
+    public NdefMessage(byte[] data) throws FormatException {
+        throw new FormatException("parsing is not stubbed");
+    }
+
+    public NdefMessage(NdefRecord record, NdefRecord... records) {
+        this.records = new NdefRecord[records.length + 1];
+        this.records[0] = record;
+        System.arraycopy(records, 0, this.records, 1, records.length);
+    }
+
+    public NdefMessage(NdefRecord[] records) {
+        this.records = records.clone();
+    }
+
+    public NdefRecord[] getRecords() {
+        return records.clone();
+    }
+
+    public byte[] toByteArray() {
+        throw new UnsupportedOperationException("encoding is not stubbed");
+    }
+}
@@ -0,0 +1,58 @@
+package android.nfc;
+
+import java.nio.charset.Charset;
+
+/**
+ * Value holder with the same API surface the module uses, the record encoding itself is not stubbed.
+ */
+public final class NdefRecord {
+    public static final short TNF_EMPTY = 0x00;
+    public static final short TNF_WELL_KNOWN = 0x01;
+    public static final short TNF_MIME_MEDIA = 0x02;
+    public static final short TNF_ABSOLUTE_URI = 0x03;
+    public static final short TNF_EXTERNAL_TYPE = 0x04;
+    public static final short TNF_UNKNOWN = 0x05;
+    public static final short TNF_UNCHANGED = 0x06;
+
+    public static final byte[] RTD_TEXT = {0x54};
+    public static final byte[] RTD_URI = {0x55};
+    public static final byte[] RTD_SMART_POSTER = {0x53, 0x70};
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private final short tnf;
+    private final byte[] type;
+    private final byte[] id;
+    private final byte[] payload;
+
+    public NdefRecord(short tnf, byte[] type, byte[] id, byte[] payload) {
+        this.tnf = tnf;
+        this.type = type;
+        this.id = id;
+        this.payload = payload;
+    }
+
+    public static NdefRecord createMime(String mimeType, byte[] mimeData) {
+        return new NdefRecord(TNF_MIME_MEDIA, mimeType.getBytes(US_ASCII), new byte[0], mimeData);
+    }
+
+    public static NdefRecord createApplicationRecord(String packageName) {
+        return new NdefRecord(TNF_EXTERNAL_TYPE, "android.com:pkg".getBytes(US_ASCII), new byte[0], packageName.getBytes(US_ASCII));
+    }
+
+    public short getTnf() {
+        return tnf;
+    }
+
+    public byte[] getType() {
+        return type.clone();
+    }
+
+    public byte[] getId() {
+        return id.clone();
+    }
+
+    public byte[] getPayload() {
+        return payload.clone();
+    }
+}
@@ -0,0 +1,19 @@
+package android.nfc;
+
+public final class Tag {
+    private final byte[] id;
+    private final String[] techList;
+
+    public Tag(byte[] id, String[] techList) {
+        this.id = id;
+        this.techList = techList;
+    }
+
+    public byte[] getId() {
+        return id;
+    }
+
+    public String[] getTechList() {
+        return techList.clone();
+    }
+}
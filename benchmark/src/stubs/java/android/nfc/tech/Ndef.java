@@ -0,0 +1,50 @@
+package android.nfc.tech;
+
+import android.nfc.NdefMessage;
+import android.nfc.Tag;
+
+public final class Ndef {
+    public static final String NFC_FORUM_TYPE_1 = "org.nfcforum.ndef.type1";
+    public static final String NFC_FORUM_TYPE_2 = "org.nfcforum.ndef.type2";
+    public static final String NFC_FORUM_TYPE_3 = "org.nfcforum.ndef.type3";
+    public static final String NFC_FORUM_TYPE_4 = "org.nfcforum.ndef.type4";
+    public static final String MIFARE_CLASSIC = "com.nxp.ndef.mifareclassic";
+
+    private final Tag tag;
+    private final String type;
+    private final int maxSize;
+    private final boolean writable;
+    private final NdefMessage cachedMessage;
+
+    public Ndef(Tag tag, String type, int maxSize, boolean writable, NdefMessage cachedMessage) {
+        this.tag = tag;
+        this.type = type;
+        this.maxSize = maxSize;
+        this.writable = writable;
+        this.cachedMessage = cachedMessage;
+    }
+
+    public Tag getTag() {
+        return tag;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public NdefMessage getCachedNdefMessage() {
+        return cachedMessage;
+    }
+
+    public boolean canMakeReadOnly() {
+        return writable;
+    }
+}
@@ -0,0 +1,14 @@
+package com.facebook.react.bridge;
+
+/**
+ * On a device these are backed by the native (JNI) collections, here by the java only ones.
+ */
+public class Arguments {
+    public static WritableArray createArray() {
+        return new JavaOnlyArray();
+    }
+
+    public static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+}
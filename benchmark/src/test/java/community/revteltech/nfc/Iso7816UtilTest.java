@@ -0,0 +1,35 @@
+package community.revteltech.nfc;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * The 61xx response chain of Iso7816Util against a scripted SimulatedIsoDep.
+ */
+public class Iso7816UtilTest {
+    private static final byte[] GET_RESPONSE_256 = {0x00, Iso7816Util.INS_GET_RESPONSE, 0x00, 0x00, 0x00};
+
+    @Test
+    public void followsTheChainToTheFinalStatusWord() throws Exception {
+        SimulatedIsoDep card = new SimulatedIsoDep()
+                .script(new byte[]{0x00, Iso7816Util.INS_GET_RESPONSE, 0x00, 0x00, 0x02}, new byte[]{0x03, 0x04, (byte) 0x90, 0x00});
+        byte[] response = Iso7816Util.followResponseChain(card, new byte[]{0x01, 0x02, 0x61, 0x02});
+        assertArrayEquals(new byte[]{0x01, 0x02, 0x03, 0x04, (byte) 0x90, 0x00}, response);
+    }
+
+    @Test
+    public void endlessChainFails() throws Exception {
+        // every GET RESPONSE asks for another one
+        SimulatedIsoDep card = new SimulatedIsoDep().script(GET_RESPONSE_256, new byte[]{0x61, 0x00});
+        try {
+            Iso7816Util.followResponseChain(card, new byte[]{0x61, 0x00});
+            fail("the chain should be capped");
+        } catch (IOException expected) {
+            // the card was not asked forever
+        }
+    }
+}
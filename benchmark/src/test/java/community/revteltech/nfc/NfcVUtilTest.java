@@ -0,0 +1,22 @@
+package community.revteltech.nfc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Block size detection of NfcVUtil against SimulatedNfcV.
+ */
+public class NfcVUtilTest {
+    @Test
+    public void blockSizeFromSystemInformation() throws Exception {
+        SimulatedNfcV tag = new SimulatedNfcV(64, 4, 32);
+        assertEquals(4, NfcVUtil.getBlockSize(tag, tag.getUid(), 0));
+    }
+
+    @Test
+    public void blockSizeWithoutSystemInformation() throws Exception {
+        SimulatedNfcV tag = new SimulatedNfcV(64, 8, 32).setSystemInfoSupported(false);
+        assertEquals(8, NfcVUtil.getBlockSize(tag, tag.getUid(), 0));
+    }
+}
@@ -0,0 +1,117 @@
+package community.revteltech.nfc;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Applies every prefix of a Type2Ndef plan, as if the tag left the field after that write, and
+ * checks the data area then holds the old message, the new one or an empty message, never a
+ * length over mixed content.
+ */
+public class Type2NdefTearTest {
+    private static final int DATA_AREA_SIZE = 872; // NTAG216
+    private static final int[] LENGTHS = {0, 1, 20, 200, 253, 254, 255, 256, 300, 600, 860};
+
+    // the NDEF TLV at offset 0, after a Lock Control TLV (offset 5) and after it plus a NULL TLV (offset 6)
+    private static final byte[][] PREFIXES = {
+            {},
+            {0x01, 0x03, (byte) 0xA0, 0x10, 0x44},
+            {0x01, 0x03, (byte) 0xA0, 0x10, 0x44, 0x00},
+    };
+
+    @Test
+    public void everyTornPrefixIsOldNewOrEmpty() throws Exception {
+        Random random = new Random(0);
+        int plans = 0;
+        for (byte[] prefix : PREFIXES) {
+            for (int oldLength : LENGTHS) {
+                for (int newLength : LENGTHS) {
+                    if (prefix.length + 4 + Math.max(oldLength, newLength) > DATA_AREA_SIZE) {
+                        continue;
+                    }
+                    byte[] oldMessage = randomBytes(random, oldLength);
+                    // a similar message (one changed byte) and an unrelated one
+                    byte[] similar = Arrays.copyOf(oldMessage, newLength);
+                    if (newLength > 0) {
+                        similar[newLength / 2] ^= 0x5A;
+                    }
+                    for (byte[] newMessage : new byte[][]{similar, randomBytes(random, newLength)}) {
+                        replay(prefix, oldMessage, newMessage);
+                        plans++;
+                    }
+                }
+            }
+        }
+        assertTrue(plans > 0);
+    }
+
+    private static void replay(byte[] prefix, byte[] oldMessage, byte[] newMessage) throws Exception {
+        byte[] data = new byte[DATA_AREA_SIZE];
+        System.arraycopy(prefix, 0, data, 0, prefix.length);
+        byte[] oldTlv = tlv(oldMessage);
+        System.arraycopy(oldTlv, 0, data, prefix.length, oldTlv.length);
+
+        Type2Ndef.Plan plan = Type2Ndef.plan(data, newMessage);
+        byte[] tag = data.clone();
+        for (int step = 0; step <= plan.writes.size(); step++) {
+            if (step > 0) {
+                Type2Ndef.PageWrite write = plan.writes.get(step - 1);
+                int offset = (write.page - Type2Ndef.DATA_START_PAGE) * UltralightUtil.PAGE_SIZE;
+                System.arraycopy(write.data, 0, tag, offset, UltralightUtil.PAGE_SIZE);
+            }
+            byte[] message = readMessage(tag);
+            boolean valid = message != null
+                    && (message.length == 0 || Arrays.equals(message, oldMessage) || Arrays.equals(message, newMessage));
+            assertTrue("torn after " + step + " of " + plan.writes.size() + " writes, NDEF TLV at "
+                    + prefix.length + ", " + oldMessage.length + " -> " + newMessage.length + " bytes", valid);
+        }
+        assertArrayEquals(newMessage, readMessage(tag));
+    }
+
+    private static byte[] tlv(byte[] message) {
+        int lengthSize = message.length < 0xff ? 1 : 3;
+        byte[] tlv = new byte[1 + lengthSize + message.length + 1];
+        tlv[0] = 0x03;
+        if (lengthSize == 1) {
+            tlv[1] = (byte) message.length;
+        } else {
+            tlv[1] = (byte) 0xff;
+            tlv[2] = (byte) (message.length >>> 8);
+            tlv[3] = (byte) message.length;
+        }
+        System.arraycopy(message, 0, tlv, 1 + lengthSize, message.length);
+        tlv[tlv.length - 1] = (byte) 0xFE;
+        return tlv;
+    }
+
+    /**
+     * @return the message of the NDEF TLV as a reader would take it, or null if the TLV is broken
+     */
+    private static byte[] readMessage(byte[] data) {
+        int offset = Type2Ndef.findNdefTlv(data);
+        if (offset < 0) {
+            return null;
+        }
+        int length = data[offset + 1] & 0xff;
+        int valueStart = offset + 2;
+        if (length == 0xff) {
+            length = (data[offset + 2] & 0xff) << 8 | (data[offset + 3] & 0xff);
+            valueStart = offset + 4;
+        }
+        if (valueStart + length > data.length) {
+            return null;
+        }
+        return Arrays.copyOfRange(data, valueStart, valueStart + length);
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
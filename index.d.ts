@@ -8,6 +8,8 @@ declare module 'react-native-nfc-manager' {
     DiscoverBackgroundTag = 'NfcManagerDiscoverBackgroundTag',
     SessionClosed = 'NfcManagerSessionClosed',
     StateChanged = 'NfcManagerStateChanged',
+    ScanLoopResult = 'NfcManagerScanLoopResult',
+    DiscoverTagBatch = 'NfcManagerDiscoverTagBatch',
   }
 
   export enum NfcTech {
@@ -31,6 +33,80 @@ declare module 'react-native-nfc-manager' {
     ReadOnly = 3,
   }
 
+  export enum ByteEncoding {
+    Array = 'array',
+    Base64 = 'base64',
+  }
+
+  /** a byte array, or a base64 encoded string (Android only) */
+  type Bytes = number[] | string;
+
+  export enum ScanLoopScript {
+    Ndef = 'ndef',
+    MifareUltralightPages = 'mifareUltralightPages',
+    Transceive = 'transceive',
+    Encode = 'encode',
+  }
+
+  export interface ScanLoopOpts extends RegisterTagEventOpts {
+    techs?: NfcTech[];
+    script?:
+      | {type: ScanLoopScript.Ndef}
+      | {
+          type: ScanLoopScript.MifareUltralightPages;
+          startPage: number;
+          endPage: number;
+        }
+      | {type: ScanLoopScript.Transceive; commands: Bytes[]}
+      | {
+          type: ScanLoopScript.Encode;
+          /** the NDEF message, or the handle from registerNdefTemplateAndroid */
+          message?: Bytes;
+          template?: number;
+          /** 'readback' (default) compares the message read back after the write */
+          verify?: 'readback' | 'none';
+          /** format blank NdefFormatable tags, default true */
+          format?: boolean;
+          /** make the tag read only once written, default false */
+          lock?: boolean;
+          /** extra attempts when the write or verification fails, default 1 */
+          retries?: number;
+        };
+  }
+
+  export interface EncodingStats {
+    encoded: number;
+    failed: number;
+    retries: number;
+    tagsPerMinute: number;
+    /** failure reason to count */
+    failures: {[reason: string]: number};
+  }
+
+  export interface ScanLoopStats {
+    tagCount: number;
+    /** only for the encode script */
+    encoding?: EncodingStats;
+  }
+
+  export interface ScanLoopResult {
+    tag: TagEvent;
+    count: number;
+    tech?: NfcTech;
+    ndefMessage?: NdefRecord[];
+    result?: Bytes | Bytes[];
+    /**
+     * encode script: notNdef, readOnly, tooSmall, tagLost, formatFail,
+     * writeFail, verifyFail or lockFail
+     */
+    error?: string;
+    attempts?: number;
+    /** only set when the message was read back */
+    verified?: boolean;
+    locked?: boolean;
+    durationMs?: number;
+  }
+
   export enum NfcAdapter {
     FLAG_READER_NFC_A = 0x1,
     FLAG_READER_NFC_B = 0x2,
@@ -67,9 +143,39 @@ declare module 'react-native-nfc-manager' {
     id?: number[];
     tnf: TNF;
     type: number[] | string;
-    payload: any[];
+    payload: any[] | string;
+    /**
+     * Android only, present when setNdefDecoding(true) and the record is a supported type
+     */
+    decoded?: DecodedNdefRecord;
   }
 
+  type DecodedNdefRecord =
+    | {kind: 'text'; text: string; lang: string; encoding: 'UTF-8' | 'UTF-16'}
+    | {kind: 'uri'; uri: string}
+    | {kind: 'smartPoster'; uri?: string; title?: string}
+    | {kind: 'mime'; mimeType: string}
+    | {
+        kind: 'wifiSimple';
+        ssid?: string;
+        networkKey?: string;
+        authType?: number[];
+      };
+
+  export type NdefRecordDesc =
+    | {kind: 'text'; text: string; lang?: ISOLangCode}
+    | {kind: 'uri'; uri: URI}
+    | {kind: 'smartPoster'; uri: URI; title?: string; lang?: ISOLangCode}
+    | {kind: 'mime'; mimeType: string; data: Bytes}
+    | {
+        kind: 'wifiSimple';
+        ssid: string;
+        networkKey: string;
+        authType?: Bytes;
+      }
+    | {kind: 'androidApp'; packageName: string}
+    | {kind: 'raw'; tnf: TNF; type: Bytes; id?: Bytes; payload: Bytes};
+
   export interface TagEvent {
     ndefMessage: NdefRecord[];
     maxSize?: number;
@@ -84,6 +190,65 @@ declare module 'react-native-nfc-manager' {
     isReaderModeEnabled?: boolean;
     readerModeFlags?: number;
     readerModeDelay?: number;
+    /**
+     * (Android reader mode) suppress repeated sightings of the same UID within this window (ms),
+     * counted as tagDebounced in getMetrics
+     */
+    uidDebounceMs?: number;
+  }
+
+  export interface TransceiveBatchOpts {
+    expectedSw?: number[];
+    followGetResponse?: boolean;
+  }
+
+  export interface LatencyStats {
+    count: number;
+    meanMs: number;
+    p50Ms: number;
+    p95Ms: number;
+    p99Ms: number;
+    maxMs: number;
+  }
+
+  export interface NfcMetrics {
+    operations: {
+      [operation: string]: LatencyStats & {
+        byTech?: {[tech: string]: LatencyStats};
+      };
+    };
+    counters: {
+      tagLost: number;
+      authFail: number;
+      multiRequestRejected: number;
+      tagDebounced: number;
+    };
+    lock: {
+      acquisitions: number;
+      contentions: number;
+      waitTotalMs: number;
+      waitMaxMs: number;
+    };
+    tagEventBatching: {
+      enabled: boolean;
+      pending: number;
+      queued: number;
+      dropped: number;
+      batches: number;
+    };
+  }
+
+  export interface TagEventBatch {
+    tags: TagEvent[];
+    /** events dropped since the previous batch */
+    dropped: number;
+  }
+
+  export interface TagEventBatchingOpts {
+    enabled?: boolean;
+    intervalMs?: number;
+    maxQueued?: number;
+    overflow?: 'dropOldest' | 'dropNewest';
   }
 
   export interface CancelTechReqOpts {
@@ -91,8 +256,57 @@ declare module 'react-native-nfc-manager' {
     delayMsAndroid?: number = 1000;
   }
 
+  interface WriteNdefOpts {
+    reconnectAfterWrite?: boolean;
+    minimalWrite?: boolean;
+  }
+
+  interface MinimalWriteResult {
+    pagesWritten: number;
+    /** the pages a full rewrite of the NDEF TLV would have written */
+    fullWritePages: number;
+  }
+
+  interface NdefTemplatePlaceholder {
+    name: string;
+    /** byte offset in the message, the range has to be inside a record payload */
+    offset: number;
+    length: number;
+  }
+
   interface NdefHandler {
-    writeNdefMessage: (bytes: number[] , options?: { reconnectAfterWrite: boolean }) => Promise<void>;
+    /**
+     * (Android) with minimalWrite on a Type 2 tag only the changed pages are written,
+     * and the promise resolves with the page counts
+     */
+    writeNdefMessage: (
+      bytes: Bytes,
+      options?: WriteNdefOpts,
+    ) => Promise<void | MinimalWriteResult>;
+    /**
+     * Android only, the message is built natively from the record descriptions
+     */
+    writeNdefRecordsAndroid: (
+      records: NdefRecordDesc[],
+      options?: WriteNdefOpts,
+    ) => Promise<void | MinimalWriteResult>;
+    /**
+     * Android only, the message is parsed once natively and written by handle,
+     * with only the placeholder bytes substituted per tag
+     */
+    registerNdefTemplateAndroid: (
+      bytes: Bytes,
+      placeholders?: NdefTemplatePlaceholder[],
+    ) => Promise<number>;
+    /**
+     * Android only, each substitution must have the placeholder's length
+     */
+    writeNdefTemplateAndroid: (
+      handle: number,
+      substitutions?: {[name: string]: Bytes},
+      options?: WriteNdefOpts,
+    ) => Promise<void | MinimalWriteResult>;
+    unregisterNdefTemplateAndroid: (handle: number) => Promise<void>;
     getNdefMessage: () => Promise<TagEvent | null>;
     makeReadOnly: () => Promise<void>;
     getNdefStatus: () => Promise<{
@@ -107,13 +321,41 @@ declare module 'react-native-nfc-manager' {
   }
 
   interface NfcVHandler {
-    transceive: (bytes: number[]) => Promise<number[]>;
+    transceive: (bytes: Bytes) => Promise<Bytes>;
+    /** (Android only) blocks first..first+count-1 in one buffer */
+    nfcVReadBlocks: (first: number, count: number) => Promise<Bytes>;
+    /** (Android only) data has to be a whole number of blocks */
+    nfcVWriteBlocks: (first: number, data: Bytes) => Promise<void>;
   }
 
   interface IsoDepHandler {
-    transceive: (bytes: number[]) => Promise<number[]>;
+    transceive: (bytes: Bytes) => Promise<Bytes>;
+    /** (Android only) a 2 byte file identifier or an AID, resolves with the response data */
+    isoDepSelect: (id: Bytes) => Promise<Bytes>;
+    /**
+     * (Android only) the whole range in one buffer, chunked natively;
+     * length 0 (default) reads to the end of the file, fid null reads the current EF
+     */
+    isoDepReadBinary: (
+      fid: Bytes | null,
+      offset?: number,
+      length?: number,
+    ) => Promise<Bytes>;
+    /** (Android only) fid null writes the current EF */
+    isoDepUpdateBinary: (
+      fid: Bytes | null,
+      offset: number,
+      data: Bytes,
+    ) => Promise<void>;
   }
 
+  type BulkWriteStatus =
+    | 'ok'
+    | 'invalid'
+    | 'authFail'
+    | 'writeFail'
+    | 'verifyFail';
+
   interface MifareClassicHandlerAndroid {
     mifareClassicSectorToBlock: (sector: number) => Promise<ArrayLike<number>>;
     mifareClassicReadBlock: (
@@ -121,7 +363,7 @@ declare module 'react-native-nfc-manager' {
     ) => Promise<ArrayLike<number>>;
     mifareClassicWriteBlock: (
       block: ArrayLike<number>,
-      simpliArr: any[],
+      simpliArr: any[] | string,
     ) => Promise<void>;
     mifareClassicIncrementBlock: (
       block: ArrayLike<number>,
@@ -135,6 +377,40 @@ declare module 'react-native-nfc-manager' {
       block: ArrayLike<number>,
     ) => Promise<void>;
     mifareClassicGetSectorCount: () => Promise<number>;
+    mifareClassicAuthenticateAuto: (
+      sector: number,
+      candidateKeys: Bytes[],
+    ) => Promise<{keyType: 'A' | 'B'; key: Bytes; cached: boolean}>;
+    getKeyCacheStats: () => Promise<{
+      hits: number;
+      misses: number;
+      size: number;
+    }>;
+    clearKeyCache: () => Promise<void>;
+    mifareClassicReadCard: (
+      keys: Bytes[],
+      sectors?: number[] | null,
+    ) => Promise<{
+      sectors: {
+        sector: number;
+        keyType: 'A' | 'B';
+        key: Bytes;
+        data: Bytes;
+        unreadableBlocks: number[];
+      }[];
+      failedSectors: number[];
+    }>;
+    /**
+     * Write several blocks in one call, with keys each sector is authenticated before its first block,
+     * with verify each block (except the sector trailers) is read back and compared
+     */
+    mifareClassicWriteBlocks: (
+      blocks: {[block: number]: Bytes},
+      options?: {keys?: Bytes[]; verify?: boolean},
+    ) => Promise<{
+      blocks: {block: number; status: BulkWriteStatus}[];
+      failed: number;
+    }>;
     mifareClassicAuthenticateA: (
       sector: number,
       keys: number[],
@@ -147,10 +423,28 @@ declare module 'react-native-nfc-manager' {
 
   interface MifareUltralightHandlerAndroid {
     mifareUltralightReadPages: (offset: number) => Promise<ArrayLike<number>>;
+    /**
+     * pages startPage..endPage (inclusive) in one buffer, read with FAST_READ when the chip supports it
+     */
+    mifareUltralightReadRange: (
+      startPage: number,
+      endPage: number,
+    ) => Promise<Bytes>;
     mifareUltralightWritePage: (
       offset: number,
-      data: number[],
+      data: Bytes,
     ) => Promise<void>;
+    /**
+     * Write whole pages from startPage, with verify they're read back in one range read and compared
+     */
+    mifareUltralightWritePages: (
+      startPage: number,
+      data: Bytes,
+      options?: {verify?: boolean},
+    ) => Promise<{
+      pages: {page: number; status: BulkWriteStatus}[];
+      failed: number;
+    }>;
   }
 
   interface NdefFormatableHandlerAndroid {
@@ -223,7 +517,14 @@ declare module 'react-native-nfc-manager' {
   type OnDiscoverTag = (evt: TagEvent) => void;
   type OnSessionClosed = (error?: NfcError.NfcErrorBase) => void;
   type OnStateChanged = (evt: {state: string}) => void;
-  type OnNfcEvents = OnDiscoverTag | OnSessionClosed | OnStateChanged;
+  type OnScanLoopResult = (evt: ScanLoopResult) => void;
+  type OnDiscoverTagBatch = (evt: TagEventBatch) => void;
+  type OnNfcEvents =
+    | OnDiscoverTag
+    | OnSessionClosed
+    | OnStateChanged
+    | OnScanLoopResult
+    | OnDiscoverTagBatch;
 
   interface NfcManager {
     start(): Promise<void>;
@@ -281,7 +582,67 @@ declare module 'react-native-nfc-manager' {
      */
     goToNfcSetting(): Promise<boolean>;
     getLaunchTagEvent(): Promise<TagEvent | null>;
-    transceive(bytes: number[]): Promise<number[]>;
+    /**
+     * Background tags are kept in a bounded queue persisted across process restarts,
+     * drainBackgroundTags removes and returns them (oldest first)
+     */
+    drainBackgroundTags(max?: number): Promise<TagEvent[]>;
+    configureBackgroundTagQueue(options?: {
+      maxSize?: number;
+      overflow?: 'dropOldest' | 'dropNewest';
+    }): Promise<{size: number; dropped: number}>;
+    transceive(bytes: Bytes): Promise<Bytes>;
+    /**
+     * If a frame fails, the error's details are {failedIndex, responses, error},
+     * with the responses of the frames before the failed one
+     */
+    transceiveBatch(
+      commands: Bytes[],
+      options?: TransceiveBatchOpts,
+    ): Promise<Bytes[]>;
+    setByteEncoding(encoding: ByteEncoding): Promise<void>;
+    setNdefDecoding(enabled: boolean): Promise<void>;
+    /**
+     * With cacheFirst, getNdefMessage returns the last known message of the tag (from discovery,
+     * a read or a write through this module) without going over the air
+     */
+    setNdefCachePolicy(policy: 'alwaysFresh' | 'cacheFirst'): Promise<void>;
+    getNdefCacheStats(): Promise<{
+      hits: number;
+      misses: number;
+      hitRatio: number;
+      size: number;
+    }>;
+    clearNdefCache(): Promise<void>;
+    getSessionState(): Promise<{
+      state: 'IDLE' | 'ARMED' | 'CONNECTED' | 'CLOSING';
+      lockAcquisitions: number;
+      lockContentions: number;
+      lockWaitTotalMs: number;
+      lockWaitMaxMs: number;
+    }>;
+    /**
+     * Latency histograms per operation (and per tech), failure counters and session lock contention
+     */
+    getMetrics(): Promise<NfcMetrics>;
+    resetMetrics(): Promise<void>;
+    /**
+     * Queue the discovered tags natively and emit them as one DiscoverTagBatch event per interval,
+     * without a DiscoverTagBatch listener they are still delivered to the DiscoverTag one
+     */
+    configureTagEventBatching(options?: TagEventBatchingOpts): Promise<void>;
+    /**
+     * Record the frames exchanged with the tag into a ring buffer, flushFrameTrace writes them
+     * to a binary log which the benchmark module can replay (see benchmark/build.gradle)
+     */
+    startFrameTrace(options?: {capacityKb?: number}): Promise<void>;
+    stopFrameTrace(): Promise<{frames: number; dropped: number}>;
+    flushFrameTrace(
+      path?: string | null,
+    ): Promise<{path: string; frames: number; dropped: number}>;
+    startScanLoop(options?: ScanLoopOpts): Promise<void>;
+    stopScanLoop(): Promise<ScanLoopStats>;
+    getScanLoopStats(): Promise<ScanLoopStats>;
     getMaxTransceiveLength(): Promise<number>;
     setTimeout(timeout: number): Promise<void>;
     connect: (techs: NfcTech[]) => Promise<void>;
@@ -421,7 +782,12 @@ declare module 'react-native-nfc-manager' {
   }
 
   export namespace NfcError {
-    export class NfcErrorBase extends Error {}
+    export class NfcErrorBase extends Error {
+      /**
+       * what the call got done before it failed, e.g. the responses of a failed transceiveBatch
+       */
+      details?: any;
+    }
     export class UnsupportedFeature extends NfcErrorBase {}
     export class SecurityViolation extends NfcErrorBase {}
     export class InvalidParameter extends NfcErrorBase {}
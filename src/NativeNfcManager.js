@@ -17,7 +17,8 @@ function callNative(name, params = []) {
 
   const createCallback = (resolve, reject) => (err, result) => {
     if (err) {
-      reject(err);
+      // some calls pass what they got done before failing along with the error
+      reject(result !== undefined ? {error: err, details: result} : err);
     } else {
       resolve(result);
     }
@@ -152,12 +152,24 @@ export async function handleNativeException(
     return await callNativePromise;
   } catch (err) {
     if (!ignoreError) {
+      let details;
+      if (err && typeof err.error === 'string') {
+        ({error: err, details} = err);
+      }
+
       // the error from the native side will always be a string
       if (typeof err === 'string') {
+        let exception;
         if (Platform.OS === 'ios') {
-          throw buildNfcExceptionIOS(err);
+          exception = buildNfcExceptionIOS(err);
         } else if (Platform.OS === 'android') {
-          throw buildNfcExceptionAndroid(err);
+          exception = buildNfcExceptionAndroid(err);
+        }
+        if (exception) {
+          if (details !== undefined) {
+            exception.details = details;
+          }
+          throw exception;
         }
       }
 
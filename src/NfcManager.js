@@ -20,6 +20,8 @@ const NfcEvents = {
   DiscoverBackgroundTag: 'NfcManagerDiscoverBackgroundTag',
   SessionClosed: 'NfcManagerSessionClosed',
   StateChanged: 'NfcManagerStateChanged',
+  ScanLoopResult: 'NfcManagerScanLoopResult',
+  DiscoverTagBatch: 'NfcManagerDiscoverTagBatch',
 };
 
 const NfcTech = {
@@ -172,6 +174,19 @@ class NfcManagerBase {
     }
   };
 
+  _onDiscoverTagBatchAndroid = (batch) => {
+    const callback = this._clientListeners[NfcEvents.DiscoverTagBatch];
+    if (callback) {
+      callback(batch);
+      return;
+    }
+
+    // without a batch listener, deliver the tags one by one
+    for (const tag of batch.tags) {
+      this._onDiscoverTag(tag);
+    }
+  };
+
   _onSessionClosedIOS = (resp) => {
     const callback = this._clientListeners[NfcEvents.SessionClosed];
     if (callback) {
@@ -187,6 +202,13 @@ class NfcManagerBase {
     }
   };
 
+  _onScanLoopResultAndroid = (result) => {
+    const callback = this._clientListeners[NfcEvents.ScanLoopResult];
+    if (callback) {
+      callback(result);
+    }
+  };
+
   _subscribeNativeEvents = () => {
     this._subscriptions = {};
     this._clientListeners = {};
@@ -216,6 +238,20 @@ class NfcManagerBase {
         NfcEvents.StateChanged,
         this._onStateChangedAndroid,
       );
+
+      this._subscriptions[
+        NfcEvents.ScanLoopResult
+      ] = NfcManagerEmitter.addListener(
+        NfcEvents.ScanLoopResult,
+        this._onScanLoopResultAndroid,
+      );
+
+      this._subscriptions[
+        NfcEvents.DiscoverTagBatch
+      ] = NfcManagerEmitter.addListener(
+        NfcEvents.DiscoverTagBatch,
+        this._onDiscoverTagBatchAndroid,
+      );
     }
   };
 }
@@ -15,14 +15,56 @@ const NfcAdapter = {
   FLAG_READER_NO_PLATFORM_SOUNDS: 0x100,
 };
 
+// how byte buffers (transceive results, block / page reads, NDEF payloads) are returned from native,
+// byte inputs always accept both a number array and a base64 string
+const ByteEncoding = {
+  Array: 'array',
+  Base64: 'base64',
+};
+
+const DEFAULT_REGISTER_TAG_EVENT_OPTIONS_ANDROID = {
+  // (reader mode) drop repeated sightings of a UID within this window, 0 disables it
+  uidDebounceMs: 0,
+};
+
+const DEFAULT_TRANSCEIVE_BATCH_OPTIONS = {
+  // stop the batch once a response's status word (SW1 << 8 | SW2) isn't listed here, empty means never stop
+  expectedSw: [],
+  // (IsoDep only) issue GET RESPONSE automatically when the card answers 61xx
+  followGetResponse: false,
+};
+
+const ScanLoopScript = {
+  Ndef: 'ndef',
+  MifareUltralightPages: 'mifareUltralightPages',
+  Transceive: 'transceive',
+  // write (format blank tags), verify and optionally lock every tag presented
+  Encode: 'encode',
+};
+
+const DEFAULT_SCAN_LOOP_OPTIONS = {
+  techs: ['Ndef'],
+  script: {type: ScanLoopScript.Ndef},
+};
+
 const delay = ms => new Promise(resolve => setTimeout(resolve, ms));
 
+const isBytesInput = (bytes) =>
+  Array.isArray(bytes) || typeof bytes === 'string';
+
 class NfcManagerAndroid extends NfcManagerBase {
   constructor() {
     super();
     this.cleanUpTagRegistration = false;
   }
 
+  async registerTagEvent(options = {}) {
+    return super.registerTagEvent({
+      ...DEFAULT_REGISTER_TAG_EVENT_OPTIONS_ANDROID,
+      ...options,
+    });
+  }
+
   requestTechnology = async (tech, options = {}) => {
     try {
       if (typeof tech === 'string') {
@@ -61,12 +103,58 @@ class NfcManagerAndroid extends NfcManagerBase {
     }
   };
 
+  startScanLoop = async (options = {}) => {
+    try {
+      const sessionAvailable = await this._hasTagEventRegistrationAndroid();
+
+      // the scan loop is driven by reader mode
+      if (!sessionAvailable) {
+        await this.registerTagEvent({...options, isReaderModeEnabled: true});
+        this.cleanUpTagRegistration = true;
+      }
+
+      return await callNative('startScanLoop', [
+        {...DEFAULT_SCAN_LOOP_OPTIONS, ...options},
+      ]);
+    } catch (ex) {
+      throw buildNfcExceptionAndroid(ex);
+    }
+  };
+
+  stopScanLoop = async () => {
+    try {
+      const result = await callNative('stopScanLoop');
+
+      if (this.cleanUpTagRegistration) {
+        await this.unregisterTagEvent();
+        this.cleanUpTagRegistration = false;
+      }
+
+      return result;
+    } catch (ex) {
+      throw buildNfcExceptionAndroid(ex);
+    }
+  };
+
+  // {tagCount, encoding?} of the running scan loop
+  getScanLoopStats = () =>
+    handleNativeException(callNative('getScanLoopStats'));
+
   getBackgroundTag = () =>
     handleNativeException(callNative('getBackgroundTag'));
 
   clearBackgroundTag = () =>
     handleNativeException(callNative('clearBackgroundTag'));
 
+  configureTagEventBatching = (options = {}) =>
+    handleNativeException(callNative('configureTagEventBatching', [options]));
+
+  drainBackgroundTags = (max = 32) =>
+    handleNativeException(callNative('drainBackgroundTags', [max]));
+
+  configureBackgroundTagQueue = (options = {}) =>
+    handleNativeException(callNative('configureBackgroundTagQueue', [options]));
+
   // -------------------------------------
   // public only for Android
   // -------------------------------------
@@ -81,6 +169,35 @@ class NfcManagerAndroid extends NfcManagerBase {
     return Promise.reject('this api is deprecated');
   }
 
+  getSessionState = () => handleNativeException(callNative('getSessionState'));
+
+  getMetrics = () => handleNativeException(callNative('getMetrics'));
+
+  resetMetrics = () => handleNativeException(callNative('resetMetrics'));
+
+  startFrameTrace = (options = {}) =>
+    handleNativeException(callNative('startFrameTrace', [options]));
+
+  stopFrameTrace = () => handleNativeException(callNative('stopFrameTrace'));
+
+  flushFrameTrace = (path = null) =>
+    handleNativeException(callNative('flushFrameTrace', [path]));
+
+  setByteEncoding = (encoding) =>
+    handleNativeException(callNative('setByteEncoding', [encoding]));
+
+  setNdefDecoding = (enabled) =>
+    handleNativeException(callNative('setNdefDecoding', [enabled]));
+
+  // 'alwaysFresh' (default) or 'cacheFirst', see getNdefMessage
+  setNdefCachePolicy = (policy) =>
+    handleNativeException(callNative('setNdefCachePolicy', [policy]));
+
+  getNdefCacheStats = () =>
+    handleNativeException(callNative('getNdefCacheStats'));
+
+  clearNdefCache = () => handleNativeException(callNative('clearNdefCache'));
+
   setTimeout = (timeout) =>
     handleNativeException(callNative('setTimeout', [timeout]));
 
@@ -91,6 +208,21 @@ class NfcManagerAndroid extends NfcManagerBase {
   transceive = (bytes) =>
     handleNativeException(callNative('transceive', [bytes]));
 
+  transceiveBatch = (commands, options = {}) => {
+    if (!Array.isArray(commands) || !commands.every(isBytesInput)) {
+      throw new Error(
+        'commands should be an Array of byte arrays or base64 strings',
+      );
+    }
+
+    return handleNativeException(
+      callNative('transceiveBatch', [
+        commands,
+        {...DEFAULT_TRANSCEIVE_BATCH_OPTIONS, ...options},
+      ]),
+    );
+  };
+
   getMaxTransceiveLength = () =>
     handleNativeException(callNative('getMaxTransceiveLength'));
 
@@ -133,4 +265,4 @@ class NfcManagerAndroid extends NfcManagerBase {
     handleNativeException(callNative('hasTagEventRegistration'));
 }
 
-export {NfcAdapter, NfcManagerAndroid};
+export {NfcAdapter, ByteEncoding, ScanLoopScript, NfcManagerAndroid};
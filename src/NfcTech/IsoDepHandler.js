@@ -4,7 +4,9 @@ import {handleNativeException} from '../NfcError';
 
 class IsoDepHandler {
   async transceive(bytes) {
-    if (!Array.isArray(bytes)) {
+    // base64 strings are only accepted by the android native module
+    const isBase64 = Platform.OS === 'android' && typeof bytes === 'string';
+    if (!Array.isArray(bytes) && !isBase64) {
       throw new Error(
         'IsoDepHandler.transceive only takes input as a byte array',
       );
@@ -30,6 +32,48 @@ class IsoDepHandler {
 
     return handleNativeException(callNative('transceive', [bytes]));
   }
+
+  // (Android only) a 2 byte file identifier or an AID,
+  // resolves with the response data
+  async isoDepSelect(id) {
+    if (Platform.OS !== 'android') {
+      throw new Error('isoDepSelect is only available on Android');
+    }
+    if (!Array.isArray(id) && typeof id !== 'string') {
+      throw new Error('id should be a byte array or a base64 string');
+    }
+
+    return handleNativeException(callNative('isoDepSelect', [id]));
+  }
+
+  // (Android only) the whole range in one buffer, length 0 reads to the end
+  // of the file, fid null reads the current EF
+  async isoDepReadBinary(fid, offset = 0, length = 0) {
+    if (Platform.OS !== 'android') {
+      throw new Error('isoDepReadBinary is only available on Android');
+    }
+    if (!Number.isInteger(offset) || !Number.isInteger(length) || length < 0) {
+      throw new Error('offset and length should be integers, length >= 0');
+    }
+
+    return handleNativeException(
+      callNative('isoDepReadBinary', [fid, offset, length]),
+    );
+  }
+
+  // (Android only) fid null writes the current EF
+  async isoDepUpdateBinary(fid, offset, data) {
+    if (Platform.OS !== 'android') {
+      throw new Error('isoDepUpdateBinary is only available on Android');
+    }
+    if (!Array.isArray(data) && typeof data !== 'string') {
+      throw new Error('data should be a byte array or a base64 string');
+    }
+
+    return handleNativeException(
+      callNative('isoDepUpdateBinary', [fid, offset, data]),
+    );
+  }
 }
 
 export {IsoDepHandler};
@@ -26,6 +26,32 @@ class MifareClassicHandlerAndroid {
     );
   }
 
+  async mifareClassicAuthenticateAuto(sector, candidateKeys) {
+    if (
+      !Array.isArray(candidateKeys) ||
+      !candidateKeys.every(
+        (key) =>
+          typeof key === 'string' || (Array.isArray(key) && key.length === 6),
+      )
+    ) {
+      throw new Error(
+        'candidateKeys should be an Array of Array[6] of integers (0 - 255)',
+      );
+    }
+
+    return handleNativeException(
+      callNative('mifareClassicAuthenticateAuto', [sector, candidateKeys]),
+    );
+  }
+
+  async getKeyCacheStats() {
+    return handleNativeException(callNative('getMifareKeyCacheStats'));
+  }
+
+  async clearKeyCache() {
+    return handleNativeException(callNative('clearMifareKeyCache'));
+  }
+
   async mifareClassicGetBlockCountInSector(sector) {
     return handleNativeException(
       callNative('mifareClassicGetBlockCountInSector', [sector]),
@@ -52,11 +78,32 @@ class MifareClassicHandlerAndroid {
     );
   }
 
+  async mifareClassicReadCard(keys, sectors = null) {
+    if (
+      !Array.isArray(keys) ||
+      keys.length === 0 ||
+      !keys.every(
+        (key) =>
+          typeof key === 'string' || (Array.isArray(key) && key.length === 6),
+      )
+    ) {
+      throw new Error(
+        'keys should be a non-empty Array of Array[6] of integers (0 - 255)',
+      );
+    }
+
+    return handleNativeException(
+      callNative('mifareClassicReadCard', [keys, sectors]),
+    );
+  }
+
   async mifareClassicWriteBlock(block, data) {
+    // base64 encoded data is length-checked natively
     if (
       !data ||
-      !Array.isArray(data) ||
-      data.length !== this.nfcManager.MIFARE_BLOCK_SIZE
+      (typeof data !== 'string' &&
+        (!Array.isArray(data) ||
+          data.length !== this.nfcManager.MIFARE_BLOCK_SIZE))
     ) {
       throw new Error(
         `data should be a non-empty Array[${this.nfcManager.MIFARE_BLOCK_SIZE}] of integers (0 - 255)`,
@@ -68,6 +115,17 @@ class MifareClassicHandlerAndroid {
     );
   }
 
+  // blocks is {[blockIndex]: data}, options {keys, verify}
+  async mifareClassicWriteBlocks(blocks, options = {}) {
+    if (!blocks || typeof blocks !== 'object' || Array.isArray(blocks)) {
+      throw new Error('blocks should be an object of {[blockIndex]: data}');
+    }
+
+    return handleNativeException(
+      callNative('mifareClassicWriteBlocks', [blocks, options]),
+    );
+  }
+
   async mifareClassicIncrementBlock(block, value) {
     if (
       !value ||
@@ -12,11 +12,28 @@ class MifareUltralightHandlerAndroid {
     );
   }
 
+  async mifareUltralightReadRange(startPage, endPage) {
+    if (
+      !Number.isInteger(startPage) ||
+      !Number.isInteger(endPage) ||
+      startPage < 0 ||
+      endPage < startPage
+    ) {
+      throw new Error('startPage and endPage should form a valid page range');
+    }
+
+    return handleNativeException(
+      callNative('mifareUltralightReadRange', [startPage, endPage]),
+    );
+  }
+
   async mifareUltralightWritePage(pageOffset, data) {
+    // base64 encoded data is length-checked natively
     if (
       !data ||
-      !Array.isArray(data) ||
-      data.length !== this.nfcManager.MIFARE_ULTRALIGHT_PAGE_SIZE
+      (typeof data !== 'string' &&
+        (!Array.isArray(data) ||
+          data.length !== this.nfcManager.MIFARE_ULTRALIGHT_PAGE_SIZE))
     ) {
       throw new Error(
         `data should be a non-empty Array[${this.nfcManager.MIFARE_ULTRALIGHT_PAGE_SIZE}] of integers (0 - 255)`,
@@ -27,6 +44,25 @@ class MifareUltralightHandlerAndroid {
       callNative('mifareUltralightWritePage', [pageOffset, data]),
     );
   }
+
+  async mifareUltralightWritePages(startPage, data, options = {}) {
+    // base64 encoded data is length-checked natively
+    if (
+      !data ||
+      (typeof data !== 'string' &&
+        (!Array.isArray(data) ||
+          data.length === 0 ||
+          data.length % this.nfcManager.MIFARE_ULTRALIGHT_PAGE_SIZE !== 0))
+    ) {
+      throw new Error(
+        `data should be a non-empty Array of whole pages (${this.nfcManager.MIFARE_ULTRALIGHT_PAGE_SIZE} bytes each)`,
+      );
+    }
+
+    return handleNativeException(
+      callNative('mifareUltralightWritePages', [startPage, data, options]),
+    );
+  }
 }
 
 export {MifareUltralightHandlerAndroid};
@@ -21,6 +21,37 @@ class NdefHandler {
   
   }
 
+  async writeNdefRecordsAndroid(records, options) {
+    const defaultOptions = {reconnectAfterWrite: false};
+    return handleNativeException(
+      callNative('writeNdefRecords', [records, {...defaultOptions, ...options}]),
+    );
+  }
+
+  // placeholders: [{name, offset, length}], byte ranges of the message substituted per write
+  async registerNdefTemplateAndroid(bytes, placeholders = []) {
+    return handleNativeException(
+      callNative('registerNdefTemplate', [bytes, placeholders]),
+    );
+  }
+
+  async writeNdefTemplateAndroid(handle, substitutions = {}, options) {
+    const defaultOptions = {reconnectAfterWrite: false};
+    return handleNativeException(
+      callNative('writeNdefTemplate', [
+        handle,
+        substitutions,
+        {...defaultOptions, ...options},
+      ]),
+    );
+  }
+
+  async unregisterNdefTemplateAndroid(handle) {
+    return handleNativeException(
+      callNative('unregisterNdefTemplate', [handle]),
+    );
+  }
+
   async getNdefMessage() {
     return handleNativeException(callNative('getNdefMessage'));
   }
@@ -4,7 +4,9 @@ import {handleNativeException} from '../NfcError';
 
 class NfcVHandler {
   async transceive(bytes) {
-    if (!Array.isArray(bytes)) {
+    // base64 strings are only accepted by the android native module
+    const isBase64 = Platform.OS === 'android' && typeof bytes === 'string';
+    if (!Array.isArray(bytes) && !isBase64) {
       throw new Error(
         'IsoDepHandler.transceive only takes input as a byte array',
       );
@@ -34,6 +36,30 @@ class NfcVHandler {
 
     return handleNativeException(callNative('transceive', [bytes]));
   }
+
+  // (Android only) Read Multiple Blocks chunked natively, returns one buffer
+  async nfcVReadBlocks(first, count) {
+    if (Platform.OS !== 'android') {
+      throw new Error('nfcVReadBlocks is only available on Android');
+    }
+    if (!Number.isInteger(first) || !Number.isInteger(count) || count <= 0) {
+      throw new Error('first and count should be integers, count > 0');
+    }
+
+    return handleNativeException(callNative('nfcVReadBlocks', [first, count]));
+  }
+
+  // (Android only) data is a whole number of blocks, written from block first
+  async nfcVWriteBlocks(first, data) {
+    if (Platform.OS !== 'android') {
+      throw new Error('nfcVWriteBlocks is only available on Android');
+    }
+    if (!Array.isArray(data) && typeof data !== 'string') {
+      throw new Error('data should be a byte array or a base64 string');
+    }
+
+    return handleNativeException(callNative('nfcVWriteBlocks', [first, data]));
+  }
 }
 
 export {NfcVHandler};
@@ -1,7 +1,12 @@
 import {Platform} from 'react-native';
 import Ndef from '../ndef-lib';
 import {NfcEvents, NfcTech, NdefStatus} from './NfcManager';
-import {NfcAdapter, NfcManagerAndroid} from './NfcManagerAndroid';
+import {
+  NfcAdapter,
+  ByteEncoding,
+  ScanLoopScript,
+  NfcManagerAndroid,
+} from './NfcManagerAndroid';
 import {
   Nfc15693RequestFlagIOS,
   Nfc15693ResponseFlagIOS,
@@ -26,6 +31,8 @@ export {
   NfcTech,
   NfcEvents,
   NfcAdapter,
+  ByteEncoding,
+  ScanLoopScript,
   Nfc15693RequestFlagIOS,
   Nfc15693ResponseFlagIOS,
   Ndef,